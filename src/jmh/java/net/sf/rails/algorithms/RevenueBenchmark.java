@@ -0,0 +1,191 @@
+package net.sf.rails.algorithms;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.GameDef;
+import net.sf.rails.game.OperatingRound;
+import net.sf.rails.game.Phase;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.round.RoundFacade;
+import net.sf.rails.game.state.ChangeStack;
+import net.sf.rails.util.GameLoader;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the revenue calculation for the positions of saved test games
+ * <p>
+ * Each game is loaded and then undone to the last revenue step of an operating round.
+ * The revenues of all operating companies with trains (or of the companies given)
+ * are calculated (without the revenue cache, which is used by RevenueService and calculateAll only).
+ * <p>
+ * Run with gradle task jmh, the results are stored in build/reports/jmh/results.json.
+ * Besides the time the number of evaluations and predictions of an operation are reported,
+ * which do not depend on the machine used. The GC profiler of the task adds the allocated
+ * bytes per operation (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RevenueBenchmark {
+
+    // saved games below the test data directory
+    @Param({"real/1835_Stoll_12.rails", "real/1856_A.rails", "real/1880_ATG1.rails",
+            "real/18EU_A.rails", "test/1837v2_SR4.rails"})
+    public String game;
+
+    @Param({"true", "false"})
+    public boolean multigraph;
+
+    // company ids separated by commas, empty => all operating companies with trains
+    @Param({""})
+    public String companies;
+
+    private RailsRoot root;
+    private Phase phase;
+    private final List<PublicCompany> operatingCompanies = new ArrayList<>();
+
+    // revenue adapters for the benchmark without route graph creation
+    private final List<RevenueAdapter> revenueAdapters = new ArrayList<>();
+
+    /**
+     * Search effort of the last operation, does not depend on the machine used
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SearchCounters {
+        public long evaluations;
+        public long predictions;
+
+        private long nbEvaluations;
+        private long nbPredictions;
+
+        private void start() {
+            nbEvaluations = 0;
+            nbPredictions = 0;
+        }
+
+        private void add(RevenueAdapter ra) {
+            RevenueStatistics statistics = ra.getRevenueStatistics();
+            if (statistics != null) {
+                nbEvaluations += statistics.getNbEvaluations();
+                nbPredictions += statistics.getNbPredictions();
+            }
+        }
+
+        private void finish() {
+            evaluations = nbEvaluations;
+            predictions = nbPredictions;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void loadGame() {
+        ConfigManager.initConfiguration(true);
+        File gameFile = new File(Config.get("save.directory"), game);
+        GameLoader gameLoader = new GameLoader();
+        if (!gameLoader.createFromFile(gameFile)) {
+            throw new IllegalStateException("Cannot load " + gameFile, gameLoader.getException());
+        }
+        root = gameLoader.getRoot();
+
+        // undo to the last revenue step
+        ChangeStack changeStack = root.getStateManager().getChangeStack();
+        while (!isRevenueStep(root.getGameManager().getCurrentRound())) {
+            if (!changeStack.isUndoPossible()) {
+                throw new IllegalStateException("No revenue step in " + gameFile);
+            }
+            changeStack.undo();
+        }
+        phase = root.getPhaseManager().getCurrentPhase();
+
+        List<String> companyIds = companies.isEmpty() ? null : Arrays.asList(companies.split(","));
+        for (PublicCompany company : root.getCompanyManager().getAllPublicCompanies()) {
+            if (companyIds == null) {
+                if (company.hasFloated() && !company.isClosed()
+                        && !company.getPortfolioModel().getTrainList().isEmpty()) {
+                    operatingCompanies.add(company);
+                }
+            } else if (companyIds.contains(company.getId())) {
+                operatingCompanies.add(company);
+            }
+        }
+    }
+
+    private static boolean isRevenueStep(RoundFacade round) {
+        return round instanceof OperatingRound
+                && ((OperatingRound) round).getStep() == GameDef.OrStep.CALC_REVENUE;
+    }
+
+    @Setup(Level.Invocation)
+    public void createRevenueAdapters() {
+        revenueAdapters.clear();
+        for (PublicCompany company : operatingCompanies) {
+            revenueAdapters.add(RevenueAdapter.createRevenueAdapter(root, company, phase));
+        }
+    }
+
+    /**
+     * Revenue calculation including the creation of the route graph
+     */
+    @Benchmark
+    public int createAndCalculate(SearchCounters counters) {
+        int revenues = 0;
+        counters.start();
+        for (PublicCompany company : operatingCompanies) {
+            RevenueAdapter ra = RevenueAdapter.createRevenueAdapter(root, company, phase);
+            revenues += calculate(ra);
+            counters.add(ra);
+        }
+        counters.finish();
+        return revenues;
+    }
+
+    /**
+     * Revenue calculation including the optimized graph, but without the route graph
+     */
+    @Benchmark
+    public int calculate(SearchCounters counters) {
+        int revenues = 0;
+        counters.start();
+        for (RevenueAdapter ra : revenueAdapters) {
+            revenues += calculate(ra);
+            counters.add(ra);
+        }
+        counters.finish();
+        return revenues;
+    }
+
+    private int calculate(RevenueAdapter ra) {
+        RevenueManager revenueManager = root.getRevenueManager();
+        ra.initRevenueCalculator(multigraph);
+        if (revenueManager != null && revenueManager.hasCalculatorModifier()) {
+            return ra.calculateRevenue();
+        } else {
+            return ra.calculateRevenue(0, ra.getTrains().size() - 1);
+        }
+    }
+
+}
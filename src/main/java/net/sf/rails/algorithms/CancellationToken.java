@@ -0,0 +1,35 @@
+package net.sf.rails.algorithms;
+
+/**
+ * CancellationToken allows to stop a running revenue calculation from another thread.
+ * The revenue calculator checks the token regularly during the search and returns the best run found so far.
+ */
+public final class CancellationToken {
+
+    private final Thread thread;
+    private volatile boolean cancelled = false;
+
+    private CancellationToken(Thread thread) {
+        this.thread = thread;
+    }
+
+    public static CancellationToken create() {
+        return new CancellationToken(null);
+    }
+
+    /**
+     * @return a token that is also cancelled if the current thread gets interrupted
+     */
+    public static CancellationToken forCurrentThread() {
+        return new CancellationToken(Thread.currentThread());
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (thread != null && thread.isInterrupted());
+    }
+
+}
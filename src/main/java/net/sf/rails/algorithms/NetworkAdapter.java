@@ -55,6 +55,15 @@ public class NetworkAdapter {
         return routeGraph;
     }
 
+    /**
+     * Uses the route graph given (without HQ, for train runs) instead of creating it
+     */
+    void setRouteGraph(PublicCompany company, NetworkGraph routeGraph) {
+        this.routeGraph = routeGraph;
+        this.company = company;
+        this.addHQ = false;
+    }
+
     public NetworkGraph getRouteGraphCached(PublicCompany company, boolean addHQ) {
         if (routeGraph == null || company != this.company || addHQ != this.addHQ) {
             if (mapGraph != null) {
@@ -33,6 +33,9 @@ public final class NetworkEdge implements Comparable<NetworkEdge> {
     private int routeCosts;
     // for the multigraph approach defines the number of routes excluded
 
+    private int rcId = -1;
+    // id in the revenue calculator, assigned with the calculator setup
+
     public NetworkEdge(NetworkVertex source, NetworkVertex target, boolean greedy) {
         this.source = source;
         this.target = target;
@@ -117,6 +120,14 @@ public final class NetworkEdge implements Comparable<NetworkEdge> {
         this.routeCosts = routeCosts;
     }
 
+    int getRCId() {
+        return rcId;
+    }
+
+    void setRCId(int rcId) {
+        this.rcId = rcId;
+    }
+
     public List<NetworkVertex> getHiddenVertices() {
         return hiddenVertices;
     }
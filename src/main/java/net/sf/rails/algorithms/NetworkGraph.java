@@ -17,6 +17,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * NetworkGraph mirrors the structure of a 18xx track
@@ -30,27 +32,56 @@ public class NetworkGraph {
 
     private final SimpleGraph<NetworkVertex, NetworkEdge> graph;
 
-    private final Map<String, NetworkVertex> vertices;
+    private static final int NB_SIDES = HexSide.all().size();
+
+    // rails vertices by hex, indexed by trackPointIndex
+    private final Map<MapHex, NetworkVertex[]> hexVertices;
+
+    // number of vertex ids assigned, the vertices of the map graph first
+    private int nbVertexIds;
 
     private NetworkIterator iterator;
 
     private NetworkGraph() {
         graph = new SimpleGraph<NetworkVertex, NetworkEdge>(NetworkEdge.class);
-        vertices = Maps.newHashMap();
+        hexVertices = Maps.newHashMap();
     }
 
     private NetworkGraph(NetworkGraph inGraph) {
         graph = new SimpleGraph<NetworkVertex, NetworkEdge>(NetworkEdge.class);
         Graphs.addGraph(graph, inGraph.graph);
-        vertices = Maps.newHashMap(inGraph.vertices);
+        hexVertices = Maps.newHashMapWithExpectedSize(inGraph.hexVertices.size());
+        for (Map.Entry<MapHex, NetworkVertex[]> entry : inGraph.hexVertices.entrySet()) {
+            hexVertices.put(entry.getKey(), entry.getValue().clone());
+        }
+        nbVertexIds = inGraph.nbVertexIds;
     }
 
     public static NetworkGraph createMapGraph(RailsRoot root) {
         NetworkGraph graph = new NetworkGraph();
-        graph.generateMapGraph(root);
+        root.getNetworkMapGraph().addToGraph(graph);
+
+        // add graph modifiers
+        RevenueManager revenueManager = root.getRevenueManager();
+        if (revenueManager != null) {
+            revenueManager.activateMapGraphModifiers(graph);
+        }
+        graph.assignVertexIds();
         return graph;
     }
 
+    /**
+     * Assigns contiguous ids to the vertices in the order of their identifiers,
+     * thus the vertices are compared without their identifiers
+     */
+    private void assignVertexIds() {
+        List<NetworkVertex> vertices = new ArrayList<>(graph.vertexSet());
+        vertices.sort(Comparator.comparing(NetworkVertex::getIdentifier));
+        for (NetworkVertex vertex : vertices) {
+            vertex.setId(nbVertexIds++);
+        }
+    }
+
     /**
      *
      * @param mapGraph
@@ -90,10 +121,6 @@ public class NetworkGraph {
         return iterator;
     }
 
-    public NetworkVertex getVertexByIdentifier(String identVertex) {
-        return vertices.get(identVertex);
-    }
-
     public NetworkVertex getVertex(BaseToken token) {
         Owner owner = token.getOwner();
         // TODO: Check if this still works
@@ -105,17 +132,27 @@ public class NetworkGraph {
     }
 
     public NetworkVertex getVertex(MapHex hex, TrackPoint point) {
-        return vertices.get(hex.getId() + "." + point.getTrackPointNumber());
+        return getVertex(hex, point.getTrackPointNumber());
     }
 
     public NetworkVertex getVertex(MapHex hex, int trackPointNr) {
-        return vertices.get(hex.getId() + "." + trackPointNr);
+        NetworkVertex[] vertices = hexVertices.get(hex);
+        int index = trackPointIndex(trackPointNr);
+        if (vertices == null || index >= vertices.length) return null;
+        return vertices[index];
     }
 
     public NetworkVertex getVertexRotated(MapHex hex, TrackPoint point) {
         if (point.getTrackPointType() == TrackPoint.Type.SIDE)
             point = point.rotate(hex.getCurrentTileRotation());
-        return vertices.get(hex.getId() + "." + point.getTrackPointNumber());
+        return getVertex(hex, point.getTrackPointNumber());
+    }
+
+    /**
+     * @return index of the track point in the vertex table of a hex: sides first, then stations
+     */
+    private static int trackPointIndex(int trackPointNr) {
+        return trackPointNr >= 0 ? trackPointNr : NB_SIDES - 1 - trackPointNr;
     }
 
     public ImmutableMap<MapHex, HexSidesSet> getReachableSides() {
@@ -171,102 +208,31 @@ public class NetworkGraph {
         return hexStops.build();
     }
 
-    private void rebuildVertices() {
-        // rebuild mapVertices
-        vertices.clear();
-        for (NetworkVertex v : graph.vertexSet()) {
-            vertices.put(v.getIdentifier(), v);
-        }
+    void addVertex(NetworkVertex vertex) {
+        graph.addVertex(vertex);
+        putVertex(vertex);
     }
 
-    private void generateMapGraph(RailsRoot root) {
-        MapManager mapManager = root.getMapManager();
-        RevenueManager revenueManager = root.getRevenueManager();
-        for (MapHex hex : mapManager.getHexes()) {
-            // get Tile
-            Tile tile = hex.getCurrentTile();
-
-            // then get stations
-            Collection<Station> stations = tile.getStations();
-            // and add those to the mapGraph
-            for (Station station : stations) {
-                NetworkVertex stationVertex = new NetworkVertex(hex, station);
-                graph.addVertex(stationVertex);
-                vertices.put(stationVertex.getIdentifier(), stationVertex);
-                log.info("Added {}", stationVertex);
-            }
-
-            // get tracks per side to add that vertex
-            for (HexSide side : HexSide.all())
-                if (tile.hasTracks(side)) {
-                    HexSide rotated = side.rotate(hex.getCurrentTileRotation());
-                    NetworkVertex sideVertex = new NetworkVertex(hex, rotated);
-                    graph.addVertex(sideVertex);
-                    vertices.put(sideVertex.getIdentifier(), sideVertex);
-                    log.info("Added {}", sideVertex);
-                }
-        }
-
-        // loop over all hex and add tracks
-        for (MapHex hex : mapManager.getHexes()) {
-            // get Tile
-            Tile tile = hex.getCurrentTile();
-            // get Tracks
-            Set<Track> tracks = tile.getTracks();
-
-            for (Track track : tracks) {
-                NetworkVertex startVertex = getVertexRotated(hex, track.getStart());
-                NetworkVertex endVertex = getVertexRotated(hex, track.getEnd());
-                log.info("Track: {}", track);
-                NetworkEdge edge = new NetworkEdge(startVertex, endVertex, false);
-                if (startVertex == endVertex) {
-                    log.error("Track {} on hex {}has identical start/end", track, hex);
-                } else {
-                    graph.addEdge(startVertex, endVertex, edge);
-                    log.info("Added non-greedy edge {}", edge.getConnection());
-                }
-            }
-
-            // TODO: Rewrite this by employing the features of Trackpoint
-            // and connect to neighbouring hexes (for sides 0-2)
-            for (HexSide side : HexSide.head()) {
-                MapHex neighborHex = mapManager.getNeighbour(hex, side);
-                if (neighborHex == null) {
-                    log.info("No connection for Hex {} at {}, No Neighbor", hex.getId(), hex.getOrientationName(side));
-                    continue;
-                }
-                NetworkVertex vertex = getVertex(hex, side);
-                HexSide rotated = side.opposite();
-                NetworkVertex otherVertex = getVertex(neighborHex, rotated);
-                if (vertex == null && otherVertex == null) {
-                    log.info("Hex {} has no track at {}", hex.getId(), hex.getOrientationName(side));
-                    log.info("And Hex {} has no track at {}", neighborHex.getId(), neighborHex.getOrientationName(rotated));
-                    continue;
-                } else if (vertex == null && otherVertex != null) {
-                    log.info("Deadend connection for Hex {} at {}, NeighborHex {} has no track at side {}", neighborHex.getId(), neighborHex.getOrientationName(rotated), hex.getId(), hex.getOrientationName(side));
-                    vertex = new NetworkVertex(hex, side);
-                    graph.addVertex(vertex);
-                    vertices.put(vertex.getIdentifier(), vertex);
-                    log.info("Added deadend vertex {}", vertex);
-                } else if (otherVertex == null) {
-                    log.info("Deadend connection for Hex {} at {}, NeighborHex {} has no track at side {}", hex.getId(), hex.getOrientationName(side), neighborHex.getId(), neighborHex.getOrientationName(rotated));
-                    otherVertex = new NetworkVertex(neighborHex, rotated);
-                    graph.addVertex(otherVertex);
-                    vertices.put(otherVertex.getIdentifier(), otherVertex);
-                    log.info("Added deadend vertex {}", otherVertex);
-                }
-                NetworkEdge edge = new NetworkEdge(vertex, otherVertex, true);
-                graph.addEdge(vertex, otherVertex,
-                        edge);
-                log.info("Added greedy edge {}", edge.getConnection());
-            }
+    private void putVertex(NetworkVertex vertex) {
+        if (vertex.isVirtual()) return;
+        int index = trackPointIndex(vertex.getTrackPointNumber());
+        NetworkVertex[] vertices = hexVertices.get(vertex.getHex());
+        if (vertices == null) {
+            vertices = new NetworkVertex[Math.max(index + 1, NB_SIDES + 1)];
+            hexVertices.put(vertex.getHex(), vertices);
+        } else if (index >= vertices.length) {
+            vertices = Arrays.copyOf(vertices, index + 1);
+            hexVertices.put(vertex.getHex(), vertices);
         }
+        vertices[index] = vertex;
+    }
 
-        // add graph modifiers
-        if (revenueManager != null) {
-            revenueManager.activateMapGraphModifiers(this);
+    private void rebuildVertices() {
+        // rebuild mapVertices
+        hexVertices.clear();
+        for (NetworkVertex v : graph.vertexSet()) {
+            putVertex(v);
         }
-
     }
 
     public void optimizeGraph() {
@@ -369,27 +335,31 @@ public class NetworkGraph {
         NetworkVertex.initAllRailsVertices(mapGraph, company, null, running);
 
         // add Company HQ
+        nbVertexIds = mapGraph.nbVertexIds;
         NetworkVertex hqVertex = new NetworkVertex(company);
+        hqVertex.setId(nbVertexIds++);
         graph.addVertex(hqVertex);
 
         // create vertex set for subgraph
         List<NetworkVertex> tokenVertexes = mapGraph.getCompanyBaseTokenVertexes(company);
         Set<NetworkVertex> vertexes = new HashSet<NetworkVertex>();
 
-        for (NetworkVertex vertex : tokenVertexes) {
-            // allow to leave tokenVertices even if those are sinks
-            // Examples are tokens in offBoard hexes
-            boolean storeSink = vertex.isSink();
-            vertex.setSink(false);
+        // the searches from the tokens only read the map graph, thus they run in parallel
+        Stream<NetworkVertex> tokenStream = (tokenVertexes.size() > 1) ?
+                tokenVertexes.parallelStream() : tokenVertexes.stream();
+        List<NetworkIterator> searches = tokenStream
+                .map(vertex -> searchFromToken(mapGraph, vertex, company))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < tokenVertexes.size(); i++) {
+            NetworkVertex vertex = tokenVertexes.get(i);
             vertexes.add(vertex);
             // add connection to graph
             graph.addVertex(vertex);
             graph.addEdge(vertex, hqVertex, new NetworkEdge(vertex, hqVertex, false));
-            iterator = new NetworkIterator(mapGraph.getGraph(), vertex, company);
-            for (; iterator.hasNext(); )
-                vertexes.add(iterator.next());
-            // restore sink property
-            vertex.setSink(storeSink);
+            // the seen data contains all vertices provided by the iterator
+            iterator = searches.get(i);
+            vertexes.addAll(iterator.getSeenData().keySet());
         }
 
         AsSubgraph<NetworkVertex, NetworkEdge> subGraph = new AsSubgraph<>(mapGraph.getGraph(), vertexes);
@@ -400,6 +370,18 @@ public class NetworkGraph {
         if (!addHQ) graph.removeVertex(hqVertex);
     }
 
+    private static NetworkIterator searchFromToken(NetworkGraph mapGraph, NetworkVertex tokenVertex,
+            PublicCompany company) {
+        // allow to leave tokenVertices even if those are sinks
+        // Examples are tokens in offBoard hexes
+        NetworkIterator search = new NetworkIterator(mapGraph.getGraph(), tokenVertex, company)
+                .setStartSinkIgnored(true);
+        while (search.hasNext()) {
+            search.next();
+        }
+        return search;
+    }
+
     public List<NetworkVertex> getCompanyBaseTokenVertexes(PublicCompany company) {
         List<NetworkVertex> vertexes = new ArrayList<NetworkVertex>();
         for (BaseToken token : company.getLaidBaseTokens()) {
@@ -28,6 +28,7 @@ public class NetworkIterator extends AbstractGraphIterator<NetworkVertex, Networ
     private NetworkVertex startVertex;
     private boolean startVertexVisited;
     private boolean routeIterator;
+    private boolean startSinkIgnored;
 
     // internal data
     private List<NetworkVertex> stack = new ArrayList<NetworkVertex>();
@@ -66,6 +67,15 @@ public class NetworkIterator extends AbstractGraphIterator<NetworkVertex, Networ
         return this;
     }
 
+    /**
+     * Allows to leave the start vertex even if it is a sink,
+     * without changing the (shared) sink property of the vertex
+     */
+    NetworkIterator setStartSinkIgnored(boolean startSinkIgnored) {
+        this.startSinkIgnored = startSinkIgnored;
+        return this;
+    }
+
     /**
      * @return the graph being traversed
      */
@@ -163,7 +173,7 @@ public class NetworkIterator extends AbstractGraphIterator<NetworkVertex, Networ
 
     private void addUnseenChildrenOf(NetworkVertex vertex, boolean greedy) {
 
-        if (vertex.isSink()) return;
+        if (vertex.isSink() && !(startSinkIgnored && vertex == startVertex)) return;
         log.debug("Iterator: Add unseen children of {}", vertex);
 
         for (NetworkEdge edge : graph.edgesOf(vertex)) {
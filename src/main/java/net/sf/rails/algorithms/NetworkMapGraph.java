@@ -0,0 +1,220 @@
+package net.sf.rails.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.rails.game.HexSide;
+import net.sf.rails.game.MapHex;
+import net.sf.rails.game.MapManager;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.Station;
+import net.sf.rails.game.Tile;
+import net.sf.rails.game.Track;
+import net.sf.rails.game.TrackPoint;
+
+import org.jgrapht.graph.SimpleGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * NetworkMapGraph keeps the track structure of the map of one RailsRoot
+ * <p>
+ * For each hex the stations, track sides and tracks of the current tile are stored.
+ * Before a map graph is created the current tile and rotation of each hex are compared
+ * to the stored ones, only hexes with a different tile or rotation are updated.
+ * This covers tile lays as well as undo and redo of them.
+ * Tokens do not change the map graph, they are considered by the route graph.
+ * <p>
+ * The vertices and edges of the map graph are changed by graph modifiers and the
+ * route graph creation, thus each map graph is a new instance created from the stored data.
+ */
+public final class NetworkMapGraph {
+
+    private static final Logger log = LoggerFactory.getLogger(NetworkMapGraph.class);
+
+    private final MapHex[] hexes;
+
+    // index of neighbouring hexes for the head sides, -1 if there is no neighbour
+    private final int[][] neighbours;
+
+    // track structure of the current tiles
+    private final HexGraph[] hexGraphs;
+
+    private int nbUpdatedHexes;
+
+    /**
+     * Track structure of a hex with a specific tile and rotation
+     */
+    private static final class HexGraph {
+        private final Tile tile;
+        private final HexSide rotation;
+
+        // track points with vertices: stations first, then the (rotated) sides
+        private final TrackPoint[] trackPoints;
+        // index of the trackPoint for each (rotated) side, -1 if there is no track
+        private final int[] sides;
+        // start and end index of the trackPoints for each track
+        private final int[][] tracks;
+
+        private HexGraph(MapHex hex) {
+            tile = hex.getCurrentTile();
+            rotation = hex.getCurrentTileRotation();
+
+            List<TrackPoint> points = new ArrayList<>(tile.getStations());
+            sides = new int[HexSide.all().size()];
+            for (HexSide side : HexSide.all()) {
+                sides[side.getTrackPointNumber()] = -1;
+            }
+            for (HexSide side : HexSide.all()) {
+                if (tile.hasTracks(side)) {
+                    HexSide rotated = side.rotate(rotation);
+                    sides[rotated.getTrackPointNumber()] = points.size();
+                    points.add(rotated);
+                }
+            }
+            trackPoints = points.toArray(new TrackPoint[0]);
+
+            List<int[]> trackList = new ArrayList<>();
+            for (Track track : tile.getTracks()) {
+                int start = indexOf(track.getStart());
+                int end = indexOf(track.getEnd());
+                if (start == -1 || end == -1) {
+                    log.error("Track {} on hex {} has no vertex", track, hex);
+                } else if (start == end) {
+                    log.error("Track {} on hex {}has identical start/end", track, hex);
+                } else {
+                    trackList.add(new int[] {start, end});
+                }
+            }
+            tracks = trackList.toArray(new int[0][]);
+        }
+
+        private int indexOf(TrackPoint point) {
+            if (point.getTrackPointType() == TrackPoint.Type.SIDE) {
+                return sides[point.rotate(rotation).getTrackPointNumber()];
+            }
+            for (int i = 0; i < trackPoints.length; i++) {
+                if (trackPoints[i].getTrackPointType() == TrackPoint.Type.STATION
+                        && trackPoints[i].getTrackPointNumber() == point.getTrackPointNumber()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean isCurrent(MapHex hex) {
+            return tile == hex.getCurrentTile() && rotation == hex.getCurrentTileRotation();
+        }
+    }
+
+    private NetworkMapGraph(RailsRoot root) {
+        MapManager mapManager = root.getMapManager();
+        hexes = mapManager.getHexes().toArray(new MapHex[0]);
+        hexGraphs = new HexGraph[hexes.length];
+
+        List<MapHex> hexList = new ArrayList<>(mapManager.getHexes());
+        List<HexSide> headSides = new ArrayList<>(HexSide.head());
+        neighbours = new int[hexes.length][headSides.size()];
+        for (int h = 0; h < hexes.length; h++) {
+            for (int s = 0; s < headSides.size(); s++) {
+                MapHex neighbour = mapManager.getNeighbour(hexes[h], headSides.get(s));
+                neighbours[h][s] = (neighbour == null) ? -1 : hexList.indexOf(neighbour);
+            }
+        }
+    }
+
+    public static NetworkMapGraph create(RailsRoot root) {
+        return new NetworkMapGraph(root);
+    }
+
+    /**
+     * Updates the hexes with a changed tile or rotation
+     */
+    private void update() {
+        int updated = 0;
+        for (int h = 0; h < hexes.length; h++) {
+            if (hexGraphs[h] == null || !hexGraphs[h].isCurrent(hexes[h])) {
+                hexGraphs[h] = new HexGraph(hexes[h]);
+                updated++;
+            }
+        }
+        if (updated > 0) {
+            nbUpdatedHexes += updated;
+            log.debug("NetworkMapGraph: updated {} of {} hexes", updated, hexes.length);
+        }
+    }
+
+    /**
+     * Adds the vertices and edges of the current map to the (empty) graph
+     */
+    synchronized void addToGraph(NetworkGraph mapGraph) {
+        update();
+
+        SimpleGraph<NetworkVertex, NetworkEdge> graph = mapGraph.getGraph();
+        NetworkVertex[][] vertices = new NetworkVertex[hexes.length][];
+
+        // add vertices for stations and sides with tracks
+        for (int h = 0; h < hexes.length; h++) {
+            MapHex hex = hexes[h];
+            TrackPoint[] trackPoints = hexGraphs[h].trackPoints;
+            vertices[h] = new NetworkVertex[trackPoints.length];
+            for (int p = 0; p < trackPoints.length; p++) {
+                if (trackPoints[p].getTrackPointType() == TrackPoint.Type.STATION) {
+                    vertices[h][p] = new NetworkVertex(hex, (Station) trackPoints[p]);
+                } else {
+                    vertices[h][p] = new NetworkVertex(hex, (HexSide) trackPoints[p]);
+                }
+                mapGraph.addVertex(vertices[h][p]);
+            }
+        }
+
+        // add tracks and connect to neighbouring hexes (for head sides)
+        for (int h = 0; h < hexes.length; h++) {
+            HexGraph hexGraph = hexGraphs[h];
+            for (int[] track : hexGraph.tracks) {
+                NetworkVertex startVertex = vertices[h][track[0]];
+                NetworkVertex endVertex = vertices[h][track[1]];
+                graph.addEdge(startVertex, endVertex, new NetworkEdge(startVertex, endVertex, false));
+            }
+
+            int s = 0;
+            for (HexSide side : HexSide.head()) {
+                int n = neighbours[h][s++];
+                if (n == -1) continue;
+                HexSide rotated = side.opposite();
+                NetworkVertex vertex = getSideVertex(vertices, h, side);
+                NetworkVertex otherVertex = getSideVertex(vertices, n, rotated);
+                if (vertex == null && otherVertex == null) {
+                    continue;
+                } else if (vertex == null) {
+                    vertex = new NetworkVertex(hexes[h], side);
+                    mapGraph.addVertex(vertex);
+                    log.debug("Added deadend vertex {}", vertex);
+                } else if (otherVertex == null) {
+                    otherVertex = new NetworkVertex(hexes[n], rotated);
+                    mapGraph.addVertex(otherVertex);
+                    log.debug("Added deadend vertex {}", otherVertex);
+                }
+                graph.addEdge(vertex, otherVertex, new NetworkEdge(vertex, otherVertex, true));
+            }
+        }
+    }
+
+    private NetworkVertex getSideVertex(NetworkVertex[][] vertices, int h, HexSide side) {
+        int index = hexGraphs[h].sides[side.getTrackPointNumber()];
+        return (index == -1) ? null : vertices[h][index];
+    }
+
+    /**
+     * @return number of hexes updated so far (including the initial creation)
+     */
+    public synchronized int getNbUpdatedHexes() {
+        return nbUpdatedHexes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "NetworkMapGraph: hexes = " + hexes.length + ", updated hexes = " + nbUpdatedHexes;
+    }
+
+}
@@ -2,6 +2,7 @@ package net.sf.rails.algorithms;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -12,17 +13,20 @@ import java.util.Set;
 
 import net.sf.rails.algorithms.RevenueAdapter.EdgeTravel;
 
+import org.jgrapht.Graph;
 import org.jgrapht.Graphs;
+import org.jgrapht.graph.MaskSubgraph;
 import org.jgrapht.graph.Multigraph;
-import org.jgrapht.graph.SimpleGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-
 /**
  * the phase 2 graph is a multigraph due to the multiple routes between vertices
+ * <p>
+ * The routes are collapsed directly from the input graph: vertices already processed
+ * are masked instead of removed from a copy of the graph. For each route edge the
+ * (partial) edges of the input graph are stored by id, the routes of each partial edge
+ * in compressed sparse rows.
  */
 public class NetworkMultigraph {
 
@@ -31,10 +35,15 @@ public class NetworkMultigraph {
     private final NetworkGraph inGraph;
     private final Multigraph<NetworkVertex, NetworkEdge> graph2 =
             new Multigraph<NetworkVertex, NetworkEdge>(NetworkEdge.class);
-    private final Multimap<NetworkEdge, NetworkEdge> partial2route =
-            HashMultimap.create();
-    private final Multimap<NetworkEdge, NetworkEdge> route2partial =
-            HashMultimap.create();
+
+    // route edges of graph2 and the ids of their partial edges
+    private final List<NetworkEdge> routeEdges = new ArrayList<>();
+    private final List<int[]> routePartials = new ArrayList<>();
+
+    // routes by partial edge: routes of partial edge p are
+    // partialRoutes[partialRouteOffset[p]] ... partialRoutes[partialRouteOffset[p+1]-1]
+    private int[] partialRouteOffset;
+    private int[] partialRoutes;
 
     private NetworkMultigraph(NetworkGraph inGraph) {
         this.inGraph = inGraph;
@@ -52,9 +61,18 @@ public class NetworkMultigraph {
 
     private void initMultigraph(Collection<NetworkVertex> protectedVertices) {
         log.debug("Ingraph {}", inGraph.getGraph());
-        // clone the inGraph
-        SimpleGraph<NetworkVertex, NetworkEdge> graph = new SimpleGraph<NetworkVertex, NetworkEdge>(NetworkEdge.class);
-        Graphs.addGraph(graph, inGraph.getGraph());
+        Graph<NetworkVertex, NetworkEdge> inputGraph = inGraph.getGraph();
+
+        // ids of the partial edges
+        Map<NetworkEdge, Integer> partialIds = new HashMap<>();
+        for (NetworkEdge edge:inputGraph.edgeSet()) {
+            partialIds.put(edge, partialIds.size());
+        }
+
+        // vertices already processed are masked, which avoids the duplication of the routes
+        Set<NetworkVertex> processedVertices = new HashSet<NetworkVertex>();
+        Graph<NetworkVertex, NetworkEdge> graph = new MaskSubgraph<NetworkVertex, NetworkEdge>(
+                inputGraph, processedVertices::contains, edge -> false);
 
         // define the relevant vertices: stations and protected
         Set<NetworkVertex> relevantVertices = new HashSet<NetworkVertex>();
@@ -75,13 +93,12 @@ public class NetworkMultigraph {
             }
         }
 
-        // change to sink and store them
-        List<NetworkVertex> sinkVertices = new ArrayList<NetworkVertex>();
+        // change to sink and store those changed
+        List<NetworkVertex> changedVertices = new ArrayList<NetworkVertex>();
         for (NetworkVertex vertex:relevantVertices) {
             if (!vertex.isSink()) {
                 vertex.setSink(true);
-            } else {
-                sinkVertices.add(vertex);
+                changedVertices.add(vertex);
             }
         }
 
@@ -91,11 +108,14 @@ public class NetworkMultigraph {
         List<NetworkVertex> relevantVertices2 = new ArrayList<NetworkVertex>(relevantVertices);
         //  Collections.sort(relevantVertices2);
 
+        // number of routes for each partial edge
+        int[] nbPartialRoutes = new int[partialIds.size()];
+
         // run the iterator for routes for each vertex
         for (NetworkVertex startVertex:relevantVertices2) {
-            startVertex.setSink(false); // deactivate sink for that vertex
-            // define iterator to find all routes from here
-            NetworkIterator iterator = new NetworkIterator(graph, startVertex).setRouteIterator(true);
+            // define iterator to find all routes from here, leaving the start vertex
+            NetworkIterator iterator = new NetworkIterator(graph, startVertex)
+                    .setRouteIterator(true).setStartSinkIgnored(true);
             log.info("Phase 2 Graph: Start routes from {}", startVertex);
             while ( iterator.hasNext() ) {
                 // found new route
@@ -105,74 +125,96 @@ public class NetworkMultigraph {
                     log.info("Phase 2 Graph: Route found to {} with route = {}", nextVertex, route);
                     // define routeEdge
                     NetworkEdge routeEdge = null;
-                    Set<NetworkEdge> partialEdges = new HashSet<NetworkEdge>();
+                    int[] partials = new int[route.size() - 1];
+                    int nbPartials = 0;
                     // previousVertex
                     NetworkVertex currentVertex = null;
                     // define new edge by going through the route edges
                     for (NetworkVertex routeVertex:route) {
                         if (currentVertex != null) {
-                            NetworkEdge partialEdge = graph.getEdge(currentVertex, routeVertex);
+                            NetworkEdge partialEdge = inputGraph.getEdge(currentVertex, routeVertex);
                             if (routeEdge == null) {
                                 routeEdge = partialEdge;
                             } else {
                                 routeEdge = NetworkEdge.mergeEdges(routeEdge, partialEdge).newEdge;
                             }
-                            partialEdges.add(partialEdge);
+                            int partialId = partialIds.get(partialEdge);
+                            partials[nbPartials++] = partialId;
+                            nbPartialRoutes[partialId]++;
                         }
                         currentVertex = routeVertex;
                     }
-                    // define partial2route entries
-                    for (NetworkEdge partialEdge:partialEdges) {
-                        partial2route.put(partialEdge, routeEdge);
-                    }
-                    // store route2partial
-                    route2partial.putAll(routeEdge, partialEdges);
+                    routeEdges.add(routeEdge);
+                    routePartials.add(partials);
                     graph2.addEdge(startVertex, currentVertex, routeEdge);
                 }
             }
-            // remove that vertex from the graph to avoid duplication of the routes
-            graph.removeVertex(startVertex);
+            // mask that vertex to avoid duplication of the routes
+            processedVertices.add(startVertex);
         }
 
-        // restore sinkVertices
-        for (NetworkVertex vertex:sinkVertices) {
-            vertex.setSink(true);
+        // restore sinks
+        for (NetworkVertex vertex:changedVertices) {
+            vertex.setSink(false);
         }
 
+        initPartialRoutes(nbPartialRoutes);
+
         log.debug("Defined graph phase 2 = {}", graph2);
 
-        // TODO: Check if this has no effect as it only logs?
-        List<NetworkEdge> edges = new ArrayList<NetworkEdge>(graph2.edgeSet());
-        Collections.sort(edges);
-        StringBuilder s = new StringBuilder();
-        for (NetworkEdge e:edges) {
-            s.append("\n").append(e.getOrderedConnection());
+        if (log.isDebugEnabled()) {
+            List<NetworkEdge> edges = new ArrayList<NetworkEdge>(graph2.edgeSet());
+            Collections.sort(edges);
+            StringBuilder s = new StringBuilder();
+            for (NetworkEdge e:edges) {
+                s.append("\n").append(e.getOrderedConnection());
+            }
+            log.debug("Edges = {}", s);
+        }
+    }
+
+    private void initPartialRoutes(int[] nbPartialRoutes) {
+        partialRouteOffset = new int[nbPartialRoutes.length + 1];
+        for (int p = 0; p < nbPartialRoutes.length; p++) {
+            partialRouteOffset[p + 1] = partialRouteOffset[p] + nbPartialRoutes[p];
+        }
+        partialRoutes = new int[partialRouteOffset[nbPartialRoutes.length]];
+        int[] next = Arrays.copyOf(partialRouteOffset, nbPartialRoutes.length);
+        for (int r = 0; r < routePartials.size(); r++) {
+            for (int p : routePartials.get(r)) {
+                partialRoutes[next[p]++] = r;
+            }
         }
-        log.debug("Edges = {}", s);
     }
 
     public Map<NetworkEdge, EdgeTravel> getPhaseTwoEdgeSets(RevenueAdapter adapter) {
 
         Map<NetworkEdge, EdgeTravel> edgeSets = new HashMap<NetworkEdge, EdgeTravel>();
-        // convert route2partial and partial2route into edgesets
-        for (NetworkEdge route:route2partial.keySet()){
+        // marks the routes already added to the current set
+        int[] addedToRoute = new int[routeEdges.size()];
+        Arrays.fill(addedToRoute, -1);
+        // convert routes of the partial edges into edgesets
+        for (int r = 0; r < routeEdges.size(); r++) {
+            NetworkEdge route = routeEdges.get(r);
             EdgeTravel edgeTrav = new EdgeTravel();
-            for (NetworkEdge partial:route2partial.get(route)) {
-                if (partial2route.get(partial).size() >= 2) { // only keep true sets
-                    edgeTrav.set.addAll(partial2route.get(partial));
+            addedToRoute[r] = r; // the route itself is not part of the set
+            for (int p : routePartials.get(r)) {
+                if (partialRouteOffset[p + 1] - partialRouteOffset[p] < 2) continue; // only keep true sets
+                for (int i = partialRouteOffset[p]; i < partialRouteOffset[p + 1]; i++) {
+                    int other = partialRoutes[i];
+                    if (addedToRoute[other] != r) {
+                        addedToRoute[other] = r;
+                        edgeTrav.set.add(routeEdges.get(other));
+                    }
                 }
             }
-            edgeTrav.set.remove(route);
-            route.setRouteCosts(edgeTrav.set.size());
-            //    route.setRouteCosts(-(route.getSource().getValue() + route.getTarget().getValue()));
             // define route costs as the size of the travel set
+            route.setRouteCosts(edgeTrav.set.size());
             if (edgeTrav.set.size() != 0) {
                 edgeSets.put(route, edgeTrav);
             }
         }
 
-
-
         return edgeSets;
 
     }
@@ -36,6 +36,12 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
     // vertex properties (for virtual vertexes)
     private final String virtualId;
 
+    // identifier, defines the natural ordering
+    private final String identifier;
+
+    // dense id in the order of the identifiers, assigned by the map graph, -1 => none
+    private int id = -1;
+
     // general vertex properties
     private StationType stationType;
     private int value = 0;
@@ -64,6 +70,7 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
 
         this.virtual = false;
         this.virtualId = null;
+        this.identifier = hex.getId() + "." + station.getTrackPointNumber();
     }
 
     /** constructor for side on mapHex */
@@ -75,6 +82,7 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
 
         this.virtual = false;
         this.virtualId = null;
+        this.identifier = hex.getId() + "." + side.getTrackPointNumber();
     }
 
     /**  constructor for public company hq */
@@ -90,6 +98,7 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
 
         this.virtual = true;
         this.virtualId = name;
+        this.identifier = name;
     }
 
     /** factory method for virtual vertex
@@ -103,11 +112,19 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
     }
 
     public String getIdentifier(){
-        if (virtual) {
-            return virtualId;
-        } else {
-            return hex.getId() + "." + trackPoint.getTrackPointNumber();
-        }
+        return identifier;
+    }
+
+    /**
+     * @return id of the vertex, the ids of the rails vertices follow the identifier order,
+     * -1 if none has been assigned
+     */
+    int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
     }
 
     public boolean isVirtual() {
@@ -220,6 +237,13 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
         return stop;
     }
 
+    /**
+     * @return track point number of a rails vertex (stations are negative, sides not)
+     */
+    int getTrackPointNumber() {
+        return trackPoint.getTrackPointNumber();
+    }
+
     public boolean isOfType(VertexType vertexType, StationType stationType) {
         return (type == vertexType && (!isStation() || getStationType() == stationType));
     }
@@ -303,7 +327,11 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
     }
 
     public int compareTo(NetworkVertex otherVertex) {
-        return this.getIdentifier().compareTo(otherVertex.getIdentifier());
+        // virtual vertices are added later, thus their ids do not follow the identifier order
+        if (!virtual && !otherVertex.virtual && id >= 0 && otherVertex.id >= 0) {
+            return Integer.compare(id, otherVertex.id);
+        }
+        return identifier.compareTo(otherVertex.identifier);
     }
 
     public static final class ValueOrder implements Comparator<NetworkVertex> {
@@ -383,6 +411,10 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
             NetworkVertex vertex, String newIdentifier, boolean addOldVertexAsHidden) {
         // create new vertex
         NetworkVertex newVertex = NetworkVertex.getVirtualVertex(vertex.type, newIdentifier);
+        // next free id of the graph
+        for (NetworkVertex v:graph.vertexSet()) {
+            newVertex.id = Math.max(newVertex.id, v.id + 1);
+        }
         // copy values
         newVertex.stationType = vertex.stationType;
         newVertex.value = vertex.value;
@@ -2,15 +2,22 @@ package net.sf.rails.algorithms;
 
 import java.awt.EventQueue;
 import java.awt.geom.GeneralPath;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import net.sf.rails.common.LocalText;
 import net.sf.rails.game.MapHex;
@@ -18,6 +25,7 @@ import net.sf.rails.game.Phase;
 import net.sf.rails.game.PublicCompany;
 import net.sf.rails.game.RailsRoot;
 import net.sf.rails.game.Train;
+import net.sf.rails.game.state.ChangeSet;
 import net.sf.rails.ui.swing.hexmap.HexMap;
 
 import org.slf4j.Logger;
@@ -26,6 +34,12 @@ import org.jgrapht.Graph;
 import org.jgrapht.Graphs;
 import org.jgrapht.graph.SimpleGraph;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Futures;
+
 
 /**
  * RevenueAdapter links the revenue algorithm to Rails.
@@ -56,6 +70,65 @@ public final class RevenueAdapter implements Runnable {
         }
     }
 
+    /**
+     * Structure of the revenue calculator that does not depend on the trains:
+     * the optimized graph, the ordered vertices and edges, the neighbors,
+     * the start vertices and the visit and travel sets.
+     * It is reused as long as the graph, the vertices to protect,
+     * the start vertices and the visit sets are unchanged.
+     */
+    private static final class CalculatorSetup {
+        // definition of the setup
+        private final boolean useMultiGraph;
+        private final int nbGraphVertices;
+        private final int nbGraphEdges;
+        private final Set<NetworkVertex> protectedVertices;
+        private final Set<NetworkVertex> startVertices;
+        private final List<Set<NetworkVertex>> visitSets;
+
+        // structure of the calculator
+        private Graph<NetworkVertex,NetworkEdge> rcGraph;
+        private List<NetworkVertex> rcVertices;
+        private List<NetworkEdge> rcEdges;
+        private int[] rcVertexIds;
+        private Map<NetworkEdge, EdgeTravel> edgeTravelSets;
+        private int[][] vertexNeighbors;
+        private int[][] vertexEdges;
+        private int[] startVertexIds;
+        private int[][] visitSetIds;
+        private int[] travelSetEdgeIds;
+        private int[][] travelSetIds;
+        private int maxVisitVertices;
+        private int maxNeighbors;
+        private int maxTravelEdges;
+
+        private CalculatorSetup(RevenueAdapter ra, boolean useMultiGraph) {
+            this.useMultiGraph = useMultiGraph;
+            this.nbGraphVertices = ra.graph.getGraph().vertexSet().size();
+            this.nbGraphEdges = ra.graph.getGraph().edgeSet().size();
+            this.protectedVertices = new HashSet<>(ra.protectedVertices);
+            this.startVertices = new HashSet<>(ra.startVertices);
+            this.visitSets = visitSetsOf(ra);
+        }
+
+        private static List<Set<NetworkVertex>> visitSetsOf(RevenueAdapter ra) {
+            List<Set<NetworkVertex>> visitSets = new ArrayList<>(ra.vertexVisitSets.size());
+            for (VertexVisit visit:ra.vertexVisitSets) {
+                visitSets.add(new HashSet<>(visit.set));
+            }
+            return visitSets;
+        }
+
+        private boolean isValidFor(RevenueAdapter ra, boolean useMultiGraph) {
+            return this.useMultiGraph == useMultiGraph
+                    && nbGraphVertices == ra.graph.getGraph().vertexSet().size()
+                    && nbGraphEdges == ra.graph.getGraph().edgeSet().size()
+                    && protectedVertices.equals(ra.protectedVertices)
+                    && startVertices.equals(ra.startVertices)
+                    && visitSets.equals(visitSetsOf(ra));
+        }
+    }
+
     // basic links, to be defined at creation
     private final RailsRoot root;
     private final RevenueManager revenueManager;
@@ -72,14 +145,31 @@ public final class RevenueAdapter implements Runnable {
     private Set<NetworkVertex> protectedVertices;
     private Map<NetworkEdge, EdgeTravel> edgeTravelSets;
 
+    // route graph with initialized vertices, before any changes by modifiers
+    // only stored for adapters that can be reused (see createRevenueAdapter with previous adapter)
+    private NetworkGraph initialGraph;
+    private int mapVersion = -1;
+    private String rights;
+
     // components related to the revenue calculator
+    private CalculatorSetup calculatorSetup;
     private RevenueCalculator rc;
     private boolean useMultiGraph;
     private Graph<NetworkVertex,NetworkEdge> rcGraph;
     private List<NetworkVertex> rcVertices;
     private List<NetworkEdge> rcEdges;
+    // ids of the vertices in the revenue calculator (index in the list above) by vertex id,
+    // the edges store their ids themselves
+    private int[] rcVertexIds;
     private List<RevenueTrainRun> optimalRun;
     private boolean hasDynamicModifiers;
+    private boolean useParallelSearch;
+
+    // statistics of the last calculation
+    private RevenueStatistics revenueStatistics;
+    private boolean useReachabilityBounds = true;
+    private boolean useSymmetryBreaking = true;
+    private boolean useDominancePruning = false;
 
     // revenue listener to communicate results
     private RevenueListener revenueListener;
@@ -108,6 +198,196 @@ public final class RevenueAdapter implements Runnable {
         return ra;
     }
 
+    /**
+     * Creates a revenue adapter that reuses the route graph and the calculator setup
+     * of the previous adapter, if neither the map nor the phase nor the rights of the company
+     * have changed since its creation.
+     * Thus changes of the trains only do not require to create and optimize the graphs again.
+     * @param previous adapter created before by this method, can be null
+     */
+    public static RevenueAdapter createRevenueAdapter(RailsRoot root, PublicCompany company, Phase phase,
+            RevenueAdapter previous) {
+        int mapVersion = root.getRouteGraphService().getVersion();
+        String rights = RouteGraphService.rightsOf(company);
+
+        NetworkAdapter networkAdapter = NetworkAdapter.create(root);
+        RevenueAdapter ra = new RevenueAdapter(root, networkAdapter, company, phase);
+        ra.mapVersion = mapVersion;
+        ra.rights = rights;
+        if (previous != null && previous.initialGraph != null && previous.company == company
+                && previous.phase == phase && previous.mapVersion == mapVersion
+                && previous.rights.equals(rights)) {
+            // vertices of the initial graph are already initialized for company and phase
+            networkAdapter.setRouteGraph(company, previous.initialGraph.cloneGraph());
+            ra.initialGraph = previous.initialGraph;
+            ra.calculatorSetup = previous.calculatorSetup;
+            log.debug("RA: reuse route graph of previous adapter");
+        }
+        ra.populateFromRails();
+        return ra;
+    }
+
+    /**
+     * Calculates the optimal runs of several companies (e.g. projections for all operating companies)
+     * using an executor with one thread per available processor
+     * @see #calculateAll(RailsRoot, Collection, Phase, ExecutorService)
+     */
+    public static Map<PublicCompany, RevenueResult> calculateAll(RailsRoot root,
+            Collection<PublicCompany> companies, Phase phase) {
+        int nbThreads = Math.max(1, Math.min(companies.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            return calculateAll(root, companies, phase, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Calculates the optimal runs of several companies (e.g. projections for all operating companies)
+     * <p>
+     * Results stored in the revenue cache are retrieved without creating a route graph.
+     * All other route graphs are created in parallel from the shared map graph.
+     * The modifiers are activated in the revenue manager, thus for one company after the other.
+     * Calculations without dynamic modifiers and calculator run in parallel on the executor,
+     * all others immediately after activation of their modifiers.
+     * @param companies companies to calculate, companies without trains have a revenue of zero
+     * @param phase phase to use for the revenue values
+     * @param executor executor for the creation of the route graphs and the calculations
+     * @return map from company to the revenue result of the multigraph calculation (in the order of companies)
+     */
+    public static Map<PublicCompany, RevenueResult> calculateAll(final RailsRoot root,
+            Collection<PublicCompany> companies, final Phase phase, ExecutorService executor) {
+
+        // retrieve cached results, create route graphs for all others
+        Map<PublicCompany, RevenueCache.Key> cacheKeys = new HashMap<>();
+        Map<PublicCompany, RevenueResult> cachedResults = new HashMap<>();
+        Map<PublicCompany, Future<RevenueAdapter>> adapters = new LinkedHashMap<>();
+        for (final PublicCompany company : companies) {
+            RevenueCache.Key cacheKey = createCacheKey(root, company, phase, ImmutableList.<String>of());
+            RevenueCache.Result cached = retrieveFromCache(root, cacheKey);
+            if (cached != null) {
+                cachedResults.put(company, cached.getRevenueResult());
+                continue;
+            }
+            cacheKeys.put(company, cacheKey);
+            adapters.put(company, executor.submit(new Callable<RevenueAdapter>() {
+                @Override
+                public RevenueAdapter call() {
+                    RevenueAdapter ra = new RevenueAdapter(root, NetworkAdapter.create(root), company, phase);
+                    ra.populateNetworkFromRails();
+                    return ra;
+                }
+            }));
+        }
+
+        // activate modifiers and start calculations
+        RevenueManager revenueManager = root.getRevenueManager();
+        Map<PublicCompany, Future<RevenueResult>> results = new HashMap<>();
+        for (PublicCompany company : adapters.keySet()) {
+            final RevenueAdapter ra = Futures.getUnchecked(adapters.get(company));
+            final RevenueCache.Key cacheKey = cacheKeys.get(company);
+            if (revenueManager != null) {
+                revenueManager.initStaticModifiers(ra);
+            }
+            if (ra.getTrains().isEmpty()) {
+                results.put(company, Futures.immediateFuture(
+                        new RevenueResult(0, 0, ImmutableList.<RevenueTrainRun>of(), true, null)));
+                continue;
+            }
+            ra.initRevenueCalculator(true);
+            if (revenueManager != null && (ra.hasDynamicModifiers || revenueManager.hasCalculatorModifier())) {
+                // uses the active modifiers of the revenue manager
+                if (revenueManager.hasCalculatorModifier()) {
+                    ra.setSpecialRevenue(revenueManager.revenueFromDynamicCalculator(ra));
+                }
+                RevenueResult result = ra.calculateRevenue(null, null);
+                root.getRevenueCache().put(cacheKey, ra, result);
+                results.put(company, Futures.immediateFuture(result));
+            } else {
+                results.put(company, executor.submit(new Callable<RevenueResult>() {
+                    @Override
+                    public RevenueResult call() {
+                        RevenueResult result = ra.calculateRevenue(null, null);
+                        root.getRevenueCache().put(cacheKey, ra, result);
+                        return result;
+                    }
+                }));
+            }
+        }
+
+        ImmutableMap.Builder<PublicCompany, RevenueResult> revenues = ImmutableMap.builder();
+        for (PublicCompany company : companies) {
+            if (cachedResults.containsKey(company)) {
+                revenues.put(company, cachedResults.get(company));
+            } else {
+                revenues.put(company, Futures.getUnchecked(results.get(company)));
+            }
+        }
+        log.debug("RA: calculated revenues of {} companies, {} retrieved from cache",
+                companies.size(), cachedResults.size());
+        return revenues.build();
+    }
+
+    /**
+     * Key of the revenue cache for the multigraph calculation of the company.
+     * It is computed from the inputs only, thus before any graph is built:
+     * The last closed ChangeSet (as modifiers can depend on any game state),
+     * the map version (tiles, tokens and other hex states, phase), the company and its rights,
+     * the phase, the trains and the registered modifiers.
+     * @param addedTrains trains added to the trains of the company (see {@link #addTrainByString(String)})
+     */
+    static RevenueCache.Key createCacheKey(RailsRoot root, PublicCompany company, Phase phase,
+            List<String> addedTrains) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(root.getRouteGraphService().getVersion());
+        RevenueManager revenueManager = root.getRevenueManager();
+        hasher.putInt((revenueManager == null) ? 0 : revenueManager.hashModifiers());
+        putString(hasher, company.getId());
+        putString(hasher, RouteGraphService.rightsOf(company));
+        putString(hasher, (phase == null) ? "" : phase.getId());
+        List<String> trainIds = new ArrayList<>();
+        for (Train train : company.getPortfolioModel().getTrainList()) {
+            trainIds.add(train.getId());
+        }
+        Collections.sort(trainIds);
+        hasher.putInt(trainIds.size());
+        for (String trainId : trainIds) {
+            putString(hasher, trainId);
+        }
+        hasher.putInt(addedTrains.size());
+        for (String train : addedTrains) {
+            putString(hasher, train);
+        }
+        ChangeSet gameState = root.getStateManager().getChangeStack().getClosedChangeSet();
+        return new RevenueCache.Key(gameState, hasher.hash().asLong());
+    }
+
+    // the length separates consecutive strings
+    private static void putString(Hasher hasher, String value) {
+        hasher.putInt(value.length()).putUnencodedChars(value);
+    }
+
+    /**
+     * Retrieves a completed calculation from the revenue cache and records its statistics
+     * @return null if no result is stored for the key
+     */
+    static RevenueCache.Result retrieveFromCache(RailsRoot root, RevenueCache.Key cacheKey) {
+        long startTime = System.nanoTime();
+        RevenueCache.Result cached = root.getRevenueCache().get(cacheKey);
+        if (cached == null) return null;
+
+        RevenueResult result = cached.getRevenueResult();
+        RevenueStatistics statistics = null;
+        if (result.getStatistics() != null) {
+            statistics = result.getStatistics().retrieved(System.nanoTime() - startTime);
+            root.getRevenueStatisticsRegistry().add(statistics);
+        }
+        log.debug("RA: revenue result retrieved from cache, {}", statistics);
+        return new RevenueCache.Result(cached.getRevenueAdapter(), new RevenueResult(result.getValue(),
+                result.getSpecialRevenue(), result.getRun(), true, statistics));
+    }
+
 
     public PublicCompany getCompany() {
         return company;
@@ -133,12 +413,98 @@ public final class RevenueAdapter implements Runnable {
         return rcGraph;
     }
 
+    /**
+     * @return index in the list by vertex id, -1 for ids without vertex in the list
+     */
+    private static int[] indexArray(List<NetworkVertex> vertices) {
+        int nbIds = 0;
+        for (NetworkVertex vertex : vertices) {
+            nbIds = Math.max(nbIds, vertex.getId() + 1);
+        }
+        int[] indices = new int[nbIds];
+        Arrays.fill(indices, -1);
+        for (int i = 0; i < vertices.size(); i++) {
+            int id = vertices.get(i).getId();
+            if (id < 0 || indices[id] != -1) {
+                throw new IllegalStateException("Vertex " + vertices.get(i) + " without unique id " + id);
+            }
+            indices[id] = i;
+        }
+        return indices;
+    }
+
+    /**
+     * @return id of the vertex in the revenue calculator, -1 if it is not part of it
+     */
     public int getRCVertexId(NetworkVertex vertex) {
-        return rcVertices.indexOf(vertex);
+        if (vertex == null) return -1;
+        int id = vertex.getId();
+        if (id < 0 || id >= rcVertexIds.length) return -1;
+        // vertices of another graph can have the same id
+        int rcId = rcVertexIds[id];
+        return rcId >= 0 && rcVertices.get(rcId) == vertex ? rcId : -1;
     }
 
+    NetworkVertex getRCVertex(int vertexId) {
+        return rcVertices.get(vertexId);
+    }
+
+    /**
+     * @return id of the edge in the revenue calculator, -1 if it is not part of it
+     */
     public int getRCEdgeId(NetworkEdge edge) {
-        return rcEdges.indexOf(edge);
+        int rcId = edge.getRCId();
+        return rcId >= 0 && rcId < rcEdges.size() && rcEdges.get(rcId) == edge ? rcId : -1;
+    }
+
+    /**
+     * Activates the parallel search of the revenue calculator (fork/join on the start train)
+     * The result is identical to the sequential search, with dynamic modifiers the sequential search is used.
+     */
+    public void setParallelSearch(boolean useParallelSearch) {
+        this.useParallelSearch = useParallelSearch;
+    }
+
+    public boolean isParallelSearch() {
+        return useParallelSearch;
+    }
+
+    /**
+     * Activates the restriction of revenue predictions to the vertices a train can reach (default: true)
+     */
+    public void setReachabilityBounds(boolean useReachabilityBounds) {
+        this.useReachabilityBounds = useReachabilityBounds;
+    }
+
+    /**
+     * Activates the symmetry breaking for identical trains (default: true):
+     * only one assignment of the runs to identical trains is searched
+     */
+    public void setSymmetryBreaking(boolean useSymmetryBreaking) {
+        this.useSymmetryBreaking = useSymmetryBreaking;
+    }
+
+    /**
+     * Activates the dominance pruning (default: false, multigraph only):
+     * runs that use all edges of a previous run of the same train without a higher value are skipped
+     */
+    public void setDominancePruning(boolean useDominancePruning) {
+        this.useDominancePruning = useDominancePruning;
+    }
+
+    /**
+     * @return statistics of the last revenue calculation, null if there was none
+     */
+    public RevenueStatistics getRevenueStatistics() {
+        return revenueStatistics;
+    }
+
+    /**
+     * @return search statistics of the last revenue calculation
+     */
+    public String getStatistics() {
+        if (rc == null) return "";
+        return rc.getStatistics() + " " + rc.getTrainStatistics();
     }
 
     public Set<NetworkVertex> getStartVertices() {
@@ -204,11 +570,30 @@ public final class RevenueAdapter implements Runnable {
     }
 
     public void populateFromRails() {
+        populateNetworkFromRails();
+
+        // add all static modifiers
+        if (revenueManager != null) {
+            revenueManager.initStaticModifiers(this);
+        }
+
+    }
+
+    /**
+     * Defines graph, vertices, bonuses and trains without activation of the static modifiers.
+     * This does not change the revenue manager, thus it can run in parallel for several companies.
+     */
+    void populateNetworkFromRails() {
         // define graph, without HQ
         graph = networkAdapter.getRouteGraphCached(company, false);
 
-        // initialize vertices
-        NetworkVertex.initAllRailsVertices(graph, company, phase, true);
+        // initialize vertices, unless taken from the initial graph of a previous adapter
+        if (initialGraph == null) {
+            NetworkVertex.initAllRailsVertices(graph, company, phase, true);
+            if (mapVersion >= 0) {
+                initialGraph = graph.cloneGraph();
+            }
+        }
 
         // define startVertexes
         addStartVertices(graph.getCompanyBaseTokenVertexes(company));
@@ -223,12 +608,6 @@ public final class RevenueAdapter implements Runnable {
         for (Train train:company.getPortfolioModel().getTrainList()) {
             addTrain(train);
         }
-
-        // add all static modifiers
-        if (revenueManager != null) {
-            revenueManager.initStaticModifiers(this);
-        }
-
     }
 
     private void defineVertexVisitSets() {
@@ -304,17 +683,56 @@ public final class RevenueAdapter implements Runnable {
             hasDynamicModifiers = revenueManager.initDynamicModifiers(this);
         }
 
-        // define optimized graph
+        // define optimized graph and the structure of the calculator, unless unchanged
+        if (calculatorSetup != null && calculatorSetup.isValidFor(this, useMultiGraph)) {
+            log.debug("RA: reuse calculator setup");
+        } else {
+            calculatorSetup = createCalculatorSetup(useMultiGraph);
+        }
+        rcGraph = calculatorSetup.rcGraph;
+        rcVertices = calculatorSetup.rcVertices;
+        rcEdges = calculatorSetup.rcEdges;
+        rcVertexIds = calculatorSetup.rcVertexIds;
+        edgeTravelSets = calculatorSetup.edgeTravelSets;
+
+        // prepare train length
+        prepareTrainLengths(rcVertices);
+
+        // check dimensions
+        int maxVisitVertices = calculatorSetup.maxVisitVertices;
+        int maxBonusVertices = maxRevenueBonusVertices();
+        int maxNeighbors = calculatorSetup.maxNeighbors;
+        int maxTravelEdges = calculatorSetup.maxTravelEdges;
+
+        if (useMultiGraph) {
+            if (useHTrains()) {
+                rc = new RevenueCalculatorMultiHex(this, rcVertices.size(), rcEdges.size(),
+                        maxNeighbors, maxVisitVertices, maxTravelEdges, trains.size(), maxBonusVertices);
+            } else {
+                rc = new RevenueCalculatorMulti(this, rcVertices.size(), rcEdges.size(),
+                        maxNeighbors, maxVisitVertices, maxTravelEdges, trains.size(), maxBonusVertices);
+            }
+        } else {
+            rc = new RevenueCalculatorSimple(this, rcVertices.size(), rcEdges.size(),
+                    maxNeighbors, maxVisitVertices, trains.size(), maxBonusVertices);
+        }
+
+        populateRevenueCalculator();
+    }
+
+    private CalculatorSetup createCalculatorSetup(boolean useMultiGraph) {
+        CalculatorSetup setup = new CalculatorSetup(this, useMultiGraph);
 
         if (useMultiGraph) {
             // generate phase 2 graph
             NetworkMultigraph multiGraph = networkAdapter.getMultigraph(company, protectedVertices);
             rcGraph = multiGraph.getGraph();
             // retrieve edge sets
-            edgeTravelSets.putAll(multiGraph.getPhaseTwoEdgeSets(this));
+            edgeTravelSets = multiGraph.getPhaseTwoEdgeSets(this);
         } else {
             // generate standard graph
             rcGraph = networkAdapter.getRevenueGraph(company, protectedVertices).getGraph();
+            edgeTravelSets = new HashMap<>();
         }
 
         // define the vertices and edges lists
@@ -323,30 +741,105 @@ public final class RevenueAdapter implements Runnable {
         rcVertices.sort(new NetworkVertex.ValueOrder());
         rcEdges = new ArrayList<>(rcGraph.edgeSet());
         rcEdges.sort(new NetworkEdge.CostOrder());
+        rcVertexIds = indexArray(rcVertices);
+        for (int id = 0; id < rcEdges.size(); id++) {
+            rcEdges.get(id).setRCId(id);
+        }
 
-        // prepare train length
-        prepareTrainLengths(rcVertices);
+        setup.rcGraph = rcGraph;
+        setup.rcVertices = rcVertices;
+        setup.rcEdges = rcEdges;
+        setup.rcVertexIds = rcVertexIds;
+        setup.edgeTravelSets = edgeTravelSets;
 
         // check dimensions
-        int maxVisitVertices = maxVisitVertices();
-        int maxBonusVertices = maxRevenueBonusVertices();
-        int maxNeighbors = maxVertexNeighbors(rcVertices);
-        int maxTravelEdges = maxTravelEdges();
+        setup.maxVisitVertices = maxVisitVertices();
+        setup.maxNeighbors = maxVertexNeighbors(rcVertices);
+        setup.maxTravelEdges = maxTravelEdges();
 
-        if (useMultiGraph) {
-            if (useHTrains()) {
-                rc = new RevenueCalculatorMultiHex(this, rcVertices.size(), rcEdges.size(),
-                        maxNeighbors, maxVisitVertices, maxTravelEdges, trains.size(), maxBonusVertices);
-            } else {
-                rc = new RevenueCalculatorMulti(this, rcVertices.size(), rcEdges.size(),
-                        maxNeighbors, maxVisitVertices, maxTravelEdges, trains.size(), maxBonusVertices);
+        defineNeighbors(setup, useMultiGraph);
+
+        // startVertexes
+        int startVertexId =0;
+        int[] sv = new int[startVertices.size()];
+        for (NetworkVertex startVertex:startVertices) {
+            sv[startVertexId++] = getRCVertexId(startVertex);
+        }
+        Arrays.sort(sv); // sort by value order
+        setup.startVertexIds = sv;
+
+        // vertex sets
+        setup.visitSetIds = new int[vertexVisitSets.size()][];
+        for (int s=0; s < vertexVisitSets.size(); s++) {
+            VertexVisit visit = vertexVisitSets.get(s);
+            int j=0;
+            int[] setArray = new int[visit.set.size()];
+            for (NetworkVertex n:visit.set){
+                setArray[j++] = getRCVertexId(n);
             }
-        } else {
-            rc = new RevenueCalculatorSimple(this, rcVertices.size(), rcEdges.size(),
-                    maxNeighbors, maxVisitVertices, trains.size(), maxBonusVertices);
+            setup.visitSetIds[s] = setArray;
         }
 
-        populateRevenueCalculator();
+        // edge sets
+        setup.travelSetEdgeIds = new int[edgeTravelSets.size()];
+        setup.travelSetIds = new int[edgeTravelSets.size()][];
+        int s = 0;
+        for ( Map.Entry<NetworkEdge, EdgeTravel> entry:edgeTravelSets.entrySet()) {
+            int j=0;
+            int[] setArray = new int[entry.getValue().set.size()];
+            for (NetworkEdge n:entry.getValue().set){
+                setArray[j++] = getRCEdgeId(n);
+            }
+            setup.travelSetEdgeIds[s] = getRCEdgeId(entry.getKey());
+            setup.travelSetIds[s++] = setArray;
+        }
+
+        return setup;
+    }
+
+    private void defineNeighbors(CalculatorSetup setup, boolean useMultiGraph) {
+        setup.vertexNeighbors = new int[rcVertices.size()][];
+        setup.vertexEdges = new int[rcVertices.size()][];
+        for (int id=0; id < rcVertices.size(); id++){
+            NetworkVertex v = rcVertices.get(id);
+            // set neighbors, now regardless of sink property
+            // this is covered by the vertex attribute
+            // and required for startvertices that are sinks themselves
+            if (useMultiGraph) {
+                Set<NetworkEdge> edges = rcGraph.edgesOf(v);
+                int e=0; int[] edgesArray = new int[edges.size()];
+                for (NetworkEdge edge:edges) {
+                    edgesArray[e++] = getRCEdgeId(edge);
+                }
+                // sort by order on edges
+                Arrays.sort(edgesArray, 0, e);
+                // define according vertices
+                int[] neighborsArray = new int[e];
+                for (int j=0; j < e; j++) {
+                    NetworkVertex toVertex = Graphs.getOppositeVertex(rcGraph, rcEdges.get(edgesArray[j]), v);
+                    neighborsArray[j] = getRCVertexId(toVertex);
+                }
+                setup.vertexNeighbors[id] = neighborsArray;
+                setup.vertexEdges[id] = edgesArray;
+            } else {
+                List<NetworkVertex> neighbors = Graphs.neighborListOf(rcGraph, v);
+                int j=0;
+                int[] neighborsArray = new int[neighbors.size()];
+                for (NetworkVertex n:neighbors){
+                    neighborsArray[j++] = getRCVertexId(n);
+                }
+                // sort by value orderboolean activatePrediction
+                Arrays.sort(neighborsArray, 0, j);
+                // define according edges
+                int[] edgesArray = new int[j];
+                for (int e=0; e < j; e++) {
+                    NetworkVertex toVertex = rcVertices.get(neighborsArray[e]);
+                    edgesArray[e] = getRCEdgeId(rcGraph.getEdge(v, toVertex));
+                }
+                setup.vertexNeighbors[id] = neighborsArray;
+                setup.vertexEdges[id] = edgesArray;
+            }
+        }
     }
 
     private int maxVisitVertices() {
@@ -434,52 +927,11 @@ public final class RevenueAdapter implements Runnable {
                 NetworkTrain train = trains.get(trainId);
                 rc.setVertexValue(id, trainId, getVertexValue(v, train, phase));
             }
-
-            // set neighbors, now regardless of sink property
-            // this is covered by the vertex attribute
-            // and required for startvertices that are sinks themselves
-            if (useMultiGraph) {
-                Set<NetworkEdge> edges = rcGraph.edgesOf(v);
-                int e=0; int[] edgesArray = new int[edges.size()];
-                for (NetworkEdge edge:edges) {
-                    edgesArray[e++] = rcEdges.indexOf(edge);
-                }
-                // sort by order on edges
-                Arrays.sort(edgesArray, 0, e);
-                // define according vertices
-                int[] neighborsArray = new int[e];
-                for (int j=0; j < e; j++) {
-                    NetworkVertex toVertex = Graphs.getOppositeVertex(rcGraph, rcEdges.get(edgesArray[j]), v);
-                    neighborsArray[j] = rcVertices.indexOf(toVertex);
-                }
-                rc.setVertexNeighbors(id, neighborsArray, edgesArray);
-            } else {
-                List<NetworkVertex> neighbors = Graphs.neighborListOf(rcGraph, v);
-                int j=0;
-                int[] neighborsArray = new int[neighbors.size()];
-                for (NetworkVertex n:neighbors){
-                    neighborsArray[j++] = rcVertices.indexOf(n);
-                }
-                // sort by value orderboolean activatePrediction
-                Arrays.sort(neighborsArray, 0, j);
-                // define according edges
-                int[] edgesArray = new int[j];
-                for (int e=0; e < j; e++) {
-                    NetworkVertex toVertex = rcVertices.get(neighborsArray[e]);
-                    edgesArray[e] = rcEdges.indexOf(rcGraph.getEdge(v, toVertex));
-                }
-                rc.setVertexNeighbors(id, neighborsArray, edgesArray);
-            }
+            rc.setVertexNeighbors(id, calculatorSetup.vertexNeighbors[id], calculatorSetup.vertexEdges[id]);
         }
 
         // set startVertexes
-        int startVertexId =0;
-        int[] sv = new int[startVertices.size()];
-        for (NetworkVertex startVertex:startVertices) {
-            sv[startVertexId++] = rcVertices.indexOf(startVertex);
-        }
-        Arrays.sort(sv); // sort by value order
-        rc.setStartVertexes(sv);
+        rc.setStartVertexes(calculatorSetup.startVertexIds.clone());
 
         // set edges
         for (int id=0; id < rcEdges.size(); id++) {
@@ -497,12 +949,7 @@ public final class RevenueAdapter implements Runnable {
         }
 
         // set vertex sets
-        for (VertexVisit visit:vertexVisitSets) {
-            int j=0;
-            int[] setArray = new int[visit.set.size()];
-            for (NetworkVertex n:visit.set){
-                setArray[j++] = rcVertices.indexOf(n);
-            }
+        for (int[] setArray:calculatorSetup.visitSetIds) {
             rc.setVisitSet(setArray);
         }
         log.debug("RA: rcVertices:{}", rcVertices);
@@ -511,20 +958,16 @@ public final class RevenueAdapter implements Runnable {
         // set revenue bonuses
         int id = 0;
         for (RevenueBonus bonus:revenueBonuses) {
-            if (bonus.addToRevenueCalculator(rc, id, rcVertices, trains, phase)) id ++;
+            if (bonus.addToRevenueCalculator(rc, id, this, trains, phase)) id ++;
         }
 
         log.info("RA: edgeTravelSets:{}", edgeTravelSets);
 
         // set edge sets
         if (useMultiGraph) {
-            for ( Map.Entry<NetworkEdge, EdgeTravel> entry:edgeTravelSets.entrySet()) {
-                int j=0;
-                int[] setArray = new int[entry.getValue().set.size()];
-                for (NetworkEdge n:entry.getValue().set){
-                    setArray[j++] = rcEdges.indexOf(n);
-                }
-                ((RevenueCalculatorMulti)rc).setTravelSet(rcEdges.indexOf(entry.getKey()), setArray);
+            for (int s=0; s < calculatorSetup.travelSetEdgeIds.length; s++) {
+                ((RevenueCalculatorMulti)rc).setTravelSet(calculatorSetup.travelSetEdgeIds[s],
+                        calculatorSetup.travelSetIds[s]);
             }
         }
 
@@ -603,6 +1046,29 @@ public final class RevenueAdapter implements Runnable {
 //        }
     }
 
+    /**
+     * Anytime version of the revenue calculation:
+     * The search stops if the time budget is exceeded or the calculation gets cancelled.
+     * Intermediate results are reported to the revenue listener.
+     * @param budget maximum duration of the search, null => no time limit
+     * @param cancellation allows to stop the search from another thread, can be null
+     * @return the best run found, flagged as optimal if the search was completed
+     */
+    public RevenueResult calculateRevenue(Duration budget, CancellationToken cancellation) {
+        if (budget != null) {
+            rc.setTermination(true, System.nanoTime() + budget.toNanos(), cancellation);
+        } else {
+            rc.setTermination(false, 0, cancellation);
+        }
+        int value = calculateRevenue(0, trains.size() - 1);
+        boolean optimal = !rc.isAborted();
+        rc.setTermination(false, 0, null);
+        if (!optimal) {
+            log.info("RA: revenue search stopped before completion, best value found = {}", value);
+        }
+        return new RevenueResult(value, specialRevenue, getOptimalRun(), optimal, revenueStatistics);
+    }
+
     // Another way to get the special revenue
     public void setSpecialRevenue (int value) {
         specialRevenue = value;
@@ -612,15 +1078,45 @@ public final class RevenueAdapter implements Runnable {
         if (startTrain < 0 || finalTrain >= trains.size() || startTrain > finalTrain) {
             return 0;
         }
+        long startTime = System.nanoTime();
         // the optimal run might change
         optimalRun = null;
+        rc.setSymmetryBreaking(useSymmetryBreaking);
+        rc.setDominancePruning(useDominancePruning);
         rc.initRuns(startTrain, finalTrain);
+        rc.resetStatistics();
+
+        rc.setReachabilityBounds(useReachabilityBounds);
+        long predictionStart = System.nanoTime();
         rc.executePredictions(startTrain, finalTrain);
-        int value = rc.calculateRevenue(startTrain, finalTrain);
+        long predictionTime = System.nanoTime() - predictionStart;
+        int value;
+        if (useParallelSearch) {
+            value = rc.calculateRevenueParallel(startTrain, finalTrain, ForkJoinPool.commonPool());
+        } else {
+            value = rc.calculateRevenue(startTrain, finalTrain);
+        }
 
+        recordStatistics(startTrain, finalTrain, value, startTime, predictionTime);
         return value;
     }
 
+    private void recordStatistics(int startTrain, int finalTrain, int value,
+            long startTime, long predictionTime) {
+        StringBuilder trainNames = new StringBuilder();
+        for (NetworkTrain train : trains.subList(startTrain, finalTrain + 1)) {
+            if (trainNames.length() > 0) trainNames.append(",");
+            trainNames.append(train.getTrainName());
+        }
+        // the parallel search is not used with dynamic modifiers
+        boolean parallel = useParallelSearch && !hasDynamicModifiers;
+        revenueStatistics = new RevenueStatistics(rc, company.getId(),
+                (phase == null) ? null : phase.getId(), trainNames.toString(),
+                value, parallel, System.nanoTime() - startTime, predictionTime);
+        root.getRevenueStatisticsRegistry().add(revenueStatistics);
+        log.debug("RA: {}", revenueStatistics);
+    }
+
     public int getSpecialRevenue() {
         return specialRevenue;
     }
@@ -645,7 +1141,7 @@ public final class RevenueAdapter implements Runnable {
     int dynamicEvaluation() {
         int value = 0;
         if (hasDynamicModifiers) {
-            value = revenueManager.evaluationValue(this.getCurrentRun(), false);
+            value = revenueManager.evaluationValue(this, rc.getRunView());
             specialRevenue = revenueManager.getSpecialRevenue();
         }
         return value;
@@ -657,7 +1153,7 @@ public final class RevenueAdapter implements Runnable {
     int dynamicPrediction() {
         int value = 0;
         if (hasDynamicModifiers) {
-            value = revenueManager.predictionValue(this.getCurrentRun());
+            value = revenueManager.predictionValue(this, rc.getRunView());
         }
         return value;
     }
@@ -681,7 +1177,8 @@ public final class RevenueAdapter implements Runnable {
     }
 
     public void run() {
-        calculateRevenue(0, trains.size() -1);
+        // the search stops if the thread gets interrupted
+        calculateRevenue(null, CancellationToken.forCurrentThread());
     }
 
     public void removeRevenueListener() {
@@ -0,0 +1,136 @@
+package net.sf.rails.algorithms;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.sf.rails.game.state.ChangeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * RevenueCache stores the results of completed revenue calculations.
+ * The key is computed from the inputs of a calculation before the graphs are built
+ * (see {@link RevenueAdapter#createCacheKey}), thus a hit does not require to create
+ * a revenue adapter at all.
+ * The key includes the last closed ChangeSet, as modifiers can depend on any game state.
+ * Thus entries of previous game states stay available for undo/redo,
+ * unless the map or the phase has changed in between.
+ * The number of entries is bounded, the least recently used entry gets evicted.
+ * For each RailsRoot one cache is created.
+ */
+public final class RevenueCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RevenueCache.class);
+
+    public static final int DEFAULT_CAPACITY = 32;
+
+    /**
+     * Fingerprint of the inputs of a revenue calculation
+     */
+    static final class Key {
+        private final ChangeSet gameState;
+        private final long hash;
+
+        Key(ChangeSet gameState, long hash) {
+            this.gameState = gameState;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Key)) return false;
+            Key otherKey = (Key) other;
+            return hash == otherKey.hash && gameState == otherKey.gameState;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+
+        @Override
+        public String toString() {
+            return gameState + "/" + Long.toHexString(hash);
+        }
+    }
+
+    /**
+     * Completed revenue calculation, the revenue adapter allows to display the optimal run
+     */
+    static final class Result {
+        private final RevenueAdapter revenueAdapter;
+        private final RevenueResult revenueResult;
+
+        Result(RevenueAdapter revenueAdapter, RevenueResult revenueResult) {
+            this.revenueAdapter = revenueAdapter;
+            this.revenueResult = revenueResult;
+        }
+
+        RevenueAdapter getRevenueAdapter() {
+            return revenueAdapter;
+        }
+
+        RevenueResult getRevenueResult() {
+            return revenueResult;
+        }
+    }
+
+    private final Map<Key, Result> entries;
+    private int hits;
+    private int misses;
+
+    private RevenueCache(final int capacity) {
+        entries = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static RevenueCache create() {
+        return new RevenueCache(DEFAULT_CAPACITY);
+    }
+
+    public static RevenueCache create(int capacity) {
+        return new RevenueCache(capacity);
+    }
+
+    synchronized Result get(Key key) {
+        Result entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        log.debug("RevenueCache: hits = {}, misses = {}", hits, misses);
+        return entry;
+    }
+
+    /**
+     * Stores the result, unless the search was stopped before completion
+     */
+    synchronized void put(Key key, RevenueAdapter revenueAdapter, RevenueResult revenueResult) {
+        if (!revenueResult.isOptimal()) return;
+        entries.put(key, new Result(revenueAdapter, revenueResult));
+    }
+
+    /**
+     * Removes all stored results
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RevenueCache: size = " + entries.size() + ", hits = " + hits + ", misses = " + misses;
+    }
+
+}
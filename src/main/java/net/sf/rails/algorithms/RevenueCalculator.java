@@ -1,6 +1,13 @@
 package net.sf.rails.algorithms;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,18 +18,21 @@ abstract class RevenueCalculator {
     protected final int nbTrains;
     protected final int nbEdges;
     protected final int nbBonuses;
+    protected final int maxNeighbors;
 
     // static vertex data
-    protected final int[][] vertexValueByTrain; // dimensions: vertexId, trainId
+    protected final int[] vertexValueByTrain; // index: vertexId * nbTrains + trainId
     protected final boolean[] vertexMajor;
     protected final boolean[] vertexMinor;
     protected final boolean[] vertexSink;
-    protected final int[] vertexNbNeighbors;
     protected final int[] vertexNbVisitSets;
     protected final int[] vertexNbBonusSets;
 
-    protected final int[][] vertexNeighbors;
-    protected final int[][] vertexEdges;
+    // neighbors in compressed sparse rows: neighbors (and edges) of vertex v
+    // are stored from vertexNeighborOffset[v] to vertexNeighborOffset[v + 1] (exclusive)
+    protected final int[] vertexNeighborOffset; // dimension: nbVertex + 1
+    protected final int[] vertexNeighbors;
+    protected final int[] vertexEdges;
     protected final int[][] vertexVisitSets; // vertex belongs to a visit set, dimension: nbVertex x maxVertexSets
     protected final int[][] vertexBonusSets; // vertex belongs to a bonus set, dimension: nbVertex x nbBonuses
 
@@ -52,6 +62,7 @@ abstract class RevenueCalculator {
     protected final boolean [] trainBottomActive;
     protected final int [] trainStartEdge;
     protected final int[] trainDistance; // keeps track of distance travelled (for H-trains)
+    protected final int[] trainStartIndex; // index of the start vertex used, -1 => not yet defined
 
     int specialRevenue;
 
@@ -79,6 +90,15 @@ abstract class RevenueCalculator {
     protected int[][] maxMajorRevenues; // dimensions trainId x nb vertex;
     protected int[][] maxMinorRevenues; // dimensions trainId x nb vertex;
     protected int[][] maxBonusRevenues; // dimensions trainId x nb bonuses
+    protected int[][][] maxMajorRevenuesByStart; // dimensions startVertex x trainId x nb vertex
+    protected int[][][] maxMinorRevenuesByStart; // dimensions startVertex x trainId x nb vertex
+    protected int[][][] maxBonusRevenuesByStart; // dimensions startVertex x trainId x nb bonuses
+    protected boolean useReachabilityBounds = true; // restrict predictions to vertices reachable from the start vertex
+
+    // symmetry and dominance pruning
+    protected boolean useSymmetryBreaking = true; // identical trains run in the order of their start vertex and edge
+    protected boolean useDominancePruning = false; // skip runs that use more edges than a previous run of higher value
+    protected final int[] trainIdenticalTo; // previous identical train, -1 => none
 
     // statistic data
     protected int countVisits;
@@ -86,12 +106,31 @@ abstract class RevenueCalculator {
     protected int nbEdgesTravelled;
     protected int nbEvaluations;
     protected int nbPredictions;
+    protected int nbPrunes; // predictions that terminated a run
+    protected int nbDominated; // runs skipped due to dominance pruning
+    protected final int[] trainNbVisits; // vertices visited by each train
 
     // revenue Adapter
     protected RevenueAdapter revenueAdapter;
 
     // activate dynamic revenue modifiers
     protected boolean callDynamicModifiers;
+    private final RunView runView = new RunView();
+
+    // fork settings for the parallel search (only used by worker calculators)
+    protected int forkTrain = -1; // train restricted to one start vertex and edge, -1 => no restriction
+    protected int forkVertex; // index of the start vertex used, startVertexes.length => train does not run
+    protected int forkEdge; // index of the start edge used
+    protected int forkRank; // position of the worker in search order
+    protected AtomicLong sharedBestValue; // best ranked value found by all workers, null => sequential search
+
+    // termination settings for the anytime search
+    private static final int TERMINATION_CHECK_MASK = 0x3FF; // check every 1024 vertex visits
+    private boolean useDeadline;
+    private long deadline; // compared to System.nanoTime()
+    private CancellationToken cancellation;
+    private int countChecks;
+    protected boolean aborted; // true => search stopped before completion
 
     // termination results
     protected static enum Terminated {
@@ -113,17 +152,19 @@ abstract class RevenueCalculator {
         this.nbEdges = nbEdges;
         this.nbTrains = nbTrains;
         this.nbBonuses = nbBonuses;
+        this.maxNeighbors = maxNeighbors;
 
         // initialize all required variables
-        vertexValueByTrain = new int[nbVertexes][nbTrains];
+        vertexValueByTrain = new int[nbVertexes * nbTrains];
         vertexMajor = new boolean[nbVertexes];
         vertexMinor = new boolean[nbVertexes];
         vertexSink = new boolean[nbVertexes];
-        vertexNbNeighbors = new int[nbVertexes];
         vertexNbVisitSets = new int[nbVertexes];
         vertexNbBonusSets = new int[nbVertexes];
-        vertexNeighbors = new int[nbVertexes][maxNeighbors];
-        vertexEdges = new int[nbVertexes][maxNeighbors];
+        // each edge is a neighbor of (at most) both of its vertices
+        vertexNeighborOffset = new int[nbVertexes + 1];
+        vertexNeighbors = new int[2 * nbEdges];
+        vertexEdges = new int[2 * nbEdges];
         vertexVisitSets = new int[nbVertexes][maxVertexSets];
         vertexBonusSets = new int[nbVertexes][nbBonuses];
 
@@ -148,7 +189,12 @@ abstract class RevenueCalculator {
         trainBottomActive = new boolean[nbTrains];
         trainStartEdge = new int[nbTrains];
         trainDistance = new int[nbTrains];
+        trainStartIndex = new int[nbTrains];
+        Arrays.fill(trainStartIndex, -1);
+        trainIdenticalTo = new int[nbTrains];
+        Arrays.fill(trainIdenticalTo, -1);
         maxCumulatedTrainRevenues = new int[nbTrains];
+        trainNbVisits = new int[nbTrains];
 
         bonusValue = new int[nbBonuses];
         bonusRequiresVertices = new int[nbBonuses];
@@ -162,34 +208,145 @@ abstract class RevenueCalculator {
         callDynamicModifiers = false;
     }
 
+    /**
+     * Creates a worker calculator for the parallel search.
+     * All static data (including the prediction data) is shared with the master calculator,
+     * the dynamic data is allocated for the worker itself.
+     */
+    protected RevenueCalculator(RevenueCalculator master) {
+
+        this.revenueAdapter = master.revenueAdapter;
+        this.nbVertexes = master.nbVertexes;
+        this.nbEdges = master.nbEdges;
+        this.nbTrains = master.nbTrains;
+        this.nbBonuses = master.nbBonuses;
+        this.maxNeighbors = master.maxNeighbors;
+
+        // shared static data
+        vertexValueByTrain = master.vertexValueByTrain;
+        vertexMajor = master.vertexMajor;
+        vertexMinor = master.vertexMinor;
+        vertexSink = master.vertexSink;
+        vertexNbVisitSets = master.vertexNbVisitSets;
+        vertexNbBonusSets = master.vertexNbBonusSets;
+        vertexNeighborOffset = master.vertexNeighborOffset;
+        vertexNeighbors = master.vertexNeighbors;
+        vertexEdges = master.vertexEdges;
+        vertexVisitSets = master.vertexVisitSets;
+        vertexBonusSets = master.vertexBonusSets;
+        startVertexes = master.startVertexes;
+
+        edgeGreedy = master.edgeGreedy;
+        edgeDistance = master.edgeDistance;
+
+        trainMaxMajors = master.trainMaxMajors;
+        trainMaxMinors = master.trainMaxMinors;
+        trainMaxBonuses = master.trainMaxBonuses;
+        trainIgnoreMinors = master.trainIgnoreMinors;
+        trainIsH = master.trainIsH;
+        trainIsE = master.trainIsE;
+        trainIdenticalTo = master.trainIdenticalTo;
+
+        bonusValue = master.bonusValue;
+        bonusRequiresVertices = master.bonusRequiresVertices;
+        bonusActiveForTrain = master.bonusActiveForTrain;
+
+        maxCumulatedTrainRevenues = master.maxCumulatedTrainRevenues;
+        maxMajorRevenues = master.maxMajorRevenues;
+        maxMinorRevenues = master.maxMinorRevenues;
+        maxBonusRevenues = master.maxBonusRevenues;
+        maxMajorRevenuesByStart = master.maxMajorRevenuesByStart;
+        maxMinorRevenuesByStart = master.maxMinorRevenuesByStart;
+        maxBonusRevenuesByStart = master.maxBonusRevenuesByStart;
+
+        // dynamic data of the worker
+        trainCurrentValue = new int[nbTrains];
+        trainMajors = new int[nbTrains];
+        trainMinors = new int[nbTrains];
+        trainBonuses = new int[nbTrains];
+        trainVisited = new boolean[nbTrains][nbVertexes];
+        trainStack = new int[nbTrains][nbVertexes + 1];
+        trainStackPos = new int[nbTrains];
+        trainBottomActive = new boolean[nbTrains];
+        trainStartEdge = new int[nbTrains];
+        trainDistance = new int[nbTrains];
+        trainStartIndex = new int[nbTrains];
+        Arrays.fill(trainStartIndex, -1);
+        bonusTrainVertices = new int[nbBonuses][nbTrains];
+        currentBestRun = new int[nbTrains][nbVertexes + 1];
+        trainNbVisits = new int[nbTrains];
+
+        // run settings
+        startTrainSet = master.startTrainSet;
+        finalTrainSet = master.finalTrainSet;
+        startTrain = master.startTrain;
+        finalTrain = master.finalTrain;
+        useRevenuePrediction = master.useRevenuePrediction;
+        useReachabilityBounds = master.useReachabilityBounds;
+        useSymmetryBreaking = master.useSymmetryBreaking;
+        useDominancePruning = master.useDominancePruning;
+        currentBestValue = master.currentBestValue;
+
+        // termination settings
+        useDeadline = master.useDeadline;
+        deadline = master.deadline;
+        cancellation = master.cancellation;
+
+        // dynamic modifiers are evaluated on the master calculator only
+        callDynamicModifiers = false;
+    }
+
+    /**
+     * @return a new worker calculator that shares the static data with this calculator
+     */
+    protected abstract RevenueCalculator createWorker();
+
     final void setVertex(int id, boolean major, boolean minor, boolean sink) {
         vertexMajor[id] = major;
         vertexMinor[id] = minor;
         vertexSink[id] = sink;
-        // default neighbors && visit and bonus sets
-        vertexNbNeighbors[id] = 0;
+        // default visit and bonus sets
         vertexNbVisitSets[id] = 0;
         vertexNbBonusSets[id] = 0;
     }
 
     final void setVertexValue(int vertexId, int trainId, int value) {
-        vertexValueByTrain[vertexId][trainId] = value;
+        vertexValueByTrain[vertexId * nbTrains + trainId] = value;
     }
 
+    /**
+     * Defines the neighbors of a vertex, this has to be called in the order of the vertex ids
+     */
     final void setVertexNeighbors(int id, int[] neighbors, int[] edges) {
-        // copy neighbors
-        for (int j=0; j < neighbors.length; j++) {
-                vertexNeighbors[id][j] = neighbors[j];
-                vertexEdges[id][j] = edges[j];
-        }
-        vertexNbNeighbors[id] = neighbors.length;
+        int offset = vertexNeighborOffset[id];
+        System.arraycopy(neighbors, 0, vertexNeighbors, offset, neighbors.length);
+        System.arraycopy(edges, 0, vertexEdges, offset, edges.length);
+        vertexNeighborOffset[id + 1] = offset + neighbors.length;
+    }
 
+    /**
+     * @return number of neighbors of the vertex
+     */
+    protected final int getNbNeighbors(int vertexId) {
+        return vertexNeighborOffset[vertexId + 1] - vertexNeighborOffset[vertexId];
     }
 
     final void setStartVertexes(int[] startVertexes) {
         this.startVertexes = startVertexes;
     }
 
+    final void setReachabilityBounds(boolean useReachabilityBounds) {
+        this.useReachabilityBounds = useReachabilityBounds;
+    }
+
+    final void setSymmetryBreaking(boolean useSymmetryBreaking) {
+        this.useSymmetryBreaking = useSymmetryBreaking;
+    }
+
+    final void setDominancePruning(boolean useDominancePruning) {
+        this.useDominancePruning = useDominancePruning;
+    }
+
 
     void setEdge(int edgeId, boolean greedy, int distance) {
         edgeGreedy[edgeId] = greedy;
@@ -233,6 +390,33 @@ abstract class RevenueCalculator {
         callDynamicModifiers = activate;
     }
 
+    /**
+     * Defines when the search stops before completion
+     * @param useDeadline true => search stops after the deadline
+     * @param deadline compared to System.nanoTime()
+     * @param cancellation search stops if cancelled, can be null
+     */
+    final void setTermination(boolean useDeadline, long deadline, CancellationToken cancellation) {
+        this.useDeadline = useDeadline;
+        this.deadline = deadline;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * @return true if the last calculation was stopped before completion
+     */
+    final boolean isAborted() {
+        return aborted;
+    }
+
+    private void checkTermination() {
+        if (useDeadline && System.nanoTime() - deadline >= 0
+                || cancellation != null && cancellation.isCancelled()) {
+            log.debug("RC: search stopped after {}", getStatistics());
+            aborted = true;
+        }
+    }
+
     final int[][] getOptimalRun() {
         log.debug("RC: currentBestRun = {}", Arrays.deepToString(currentBestRun));
         return currentBestRun;
@@ -257,15 +441,37 @@ abstract class RevenueCalculator {
         return nbEvaluations;
     }
 
+    /**
+     * @return calculator variant for the statistics
+     */
+    abstract RevenueStatistics.Variant getVariant();
+
+    /**
+     * Resets the counters of the search statistics
+     */
+    final void resetStatistics() {
+        nbEvaluations = 0; nbPredictions = 0; nbPrunes = 0; nbEdgesTravelled = 0; nbDominated = 0;
+    }
+
     final String getStatistics() {
         StringBuilder statistics = new StringBuilder();
         statistics.append(nbEvaluations).append(" evaluations");
         if (useRevenuePrediction)
             statistics.append(", ").append(nbPredictions).append(" predictions");
+        if (useDominancePruning)
+            statistics.append(", ").append(nbDominated).append(" dominated runs");
         statistics.append(" and ").append(nbEdgesTravelled).append(" edges travelled.");
         return statistics.toString();
     }
 
+    final String getTrainStatistics() {
+        StringBuilder statistics = new StringBuilder("Vertices visited by train:");
+        for (int j = startTrainSet; j <= finalTrainSet; j++) {
+            statistics.append(" ").append(j).append(" = ").append(trainNbVisits[j]);
+        }
+        return statistics.toString();
+    }
+
     private void notifyRevenueAdapter(final int revenue, final int specialRevenue, final boolean finalResult) {
         String modifier;
         if (finalResult)
@@ -273,6 +479,7 @@ abstract class RevenueCalculator {
         else
             modifier = "new best";
         log.debug("Report {} result of {} after {}", modifier, revenue, getStatistics());
+        if (finalResult) log.debug("RC: {}", getTrainStatistics());
         revenueAdapter.notifyRevenueListener(revenue, specialRevenue, finalResult);
     }
 
@@ -295,42 +502,147 @@ abstract class RevenueCalculator {
         maxMinorRevenues = new int[nbTrains][nbVertexes];
         maxBonusRevenues = new int[nbTrains][nbVertexes + nbBonuses];
         for (int t=startTrain; t <= finalTrain; t++) {
-            int[] majorValues = new int[nbVertexes];
-            int[] minorValues = new int[nbVertexes];
-            int[] bonusValues = new int[nbVertexes + nbBonuses];
-            int major = 0, minor = 0, bonus = 0;
-            // scan vertices for values
-            for (int v=0; v < nbVertexes; v++) {
-                if (vertexValueByTrain[v][t] == 0) continue;
-                if (vertexMajor[v]) {
-                    majorValues[major++] = vertexValueByTrain[v][t];
-                } else if (vertexMinor[v]) {
-                    minorValues[minor++] = vertexValueByTrain[v][t];
-                } else { // define it as bonus
-                    bonusValues[bonus++] = vertexValueByTrain[v][t];
+            trainMaxBonuses[t] = initTrainRevenueValues(t, null, null,
+                    maxMajorRevenues, maxMinorRevenues, maxBonusRevenues);
+            // initially the cumulated train revenues are the individual run revenues
+            maxCumulatedTrainRevenues[t] = trainRevenueBound(t, maxMajorRevenues, maxMinorRevenues, maxBonusRevenues);
+        }
+
+        // restrict the values to the vertices reachable from each start vertex
+        if (useReachabilityBounds) {
+            maxMajorRevenuesByStart = new int[startVertexes.length][nbTrains][];
+            maxMinorRevenuesByStart = new int[startVertexes.length][nbTrains][];
+            maxBonusRevenuesByStart = new int[startVertexes.length][nbTrains][];
+            int[] trainRevenues = new int[nbTrains];
+            for (int i=0; i < startVertexes.length; i++) {
+                int[] stopsToVertex = stopsFromStartVertex(startVertexes[i], true);
+                int[] majorsToVertex = stopsFromStartVertex(startVertexes[i], false);
+                for (int t=startTrain; t <= finalTrain; t++) {
+                    if (trainIsH[t]) {
+                        // H-trains are limited by distance, thus they use all vertices
+                        maxMajorRevenuesByStart[i][t] = maxMajorRevenues[t];
+                        maxMinorRevenuesByStart[i][t] = maxMinorRevenues[t];
+                        maxBonusRevenuesByStart[i][t] = maxBonusRevenues[t];
+                    } else {
+                        initTrainRevenueValues(t, stopsToVertex, majorsToVertex, maxMajorRevenuesByStart[i],
+                                maxMinorRevenuesByStart[i], maxBonusRevenuesByStart[i]);
+                    }
+                    trainRevenues[t] = Math.max(trainRevenues[t], trainRevenueBound(t, maxMajorRevenuesByStart[i],
+                            maxMinorRevenuesByStart[i], maxBonusRevenuesByStart[i]));
                 }
             }
-            // add the (complex) bonuses
-            for (int b=0; b < nbBonuses; b++) {
-                if (bonusValue[b] <= 0 || !bonusActiveForTrain[b][t]) continue;
-                bonusValues[bonus++] = bonusValue[b];
+            // each run uses one start vertex only
+            for (int t=startTrain; t <= finalTrain; t++) {
+                maxCumulatedTrainRevenues[t] = trainRevenues[t];
             }
-            trainMaxBonuses[t] = bonus;
-
-            maxMajorRevenues[t] = bestRevenues(majorValues, trainMaxMajors[t]);
-            maxMinorRevenues[t] = bestRevenues(minorValues, trainMaxMinors[t]);
-            maxBonusRevenues[t] = bestRevenues(bonusValues, trainMaxBonuses[t]);
-            // initially the cumulated train revenues are the individual run revenues
-            int trainRevenues = maxMajorRevenues[t][trainMaxMajors[t]] + maxMinorRevenues[t][trainMaxMinors[t]]
-                     + maxBonusRevenues[t][trainMaxBonuses[t]];
-            maxCumulatedTrainRevenues[t] = trainRevenues;
+        } else {
+            maxMajorRevenuesByStart = null;
+            maxMinorRevenuesByStart = null;
+            maxBonusRevenuesByStart = null;
         }
+
         log.debug("maxMajorRevenues = {}", Arrays.deepToString(maxMajorRevenues));
         log.debug("maxMinorRevenues = {}", Arrays.deepToString(maxMinorRevenues));
         log.debug("maxBonusRevenues = {}", Arrays.deepToString(maxBonusRevenues));
         log.debug("maxCumulatedTrainRevenues = {}", Arrays.toString(maxCumulatedTrainRevenues));
     }
 
+    /**
+     * Defines the best revenues of a train for the vertices it can reach
+     * @param stopsToVertex stations required to reach a vertex, null => all vertices are reachable
+     * @param majorsToVertex majors required to reach a vertex, null => all vertices are reachable
+     * @return number of bonuses available to the train
+     */
+    private int initTrainRevenueValues(final int t, final int[] stopsToVertex, final int[] majorsToVertex,
+            final int[][] majorRevenues, final int[][] minorRevenues, final int[][] bonusRevenues) {
+        int[] majorValues = new int[2 * nbVertexes];
+        int[] minorValues = new int[nbVertexes];
+        int[] bonusValues = new int[nbVertexes + nbBonuses];
+        int major = 0, minor = 0, bonus = 0;
+        // scan vertices for values
+        for (int v=0; v < nbVertexes; v++) {
+            int value = vertexValueByTrain[v * nbTrains + t];
+            if (value == 0) continue;
+            if (majorsToVertex != null && majorsToVertex[v] > trainMaxMajors[t]) continue;
+            if (stopsToVertex != null && !trainIgnoreMinors[t]
+                    && stopsToVertex[v] > trainMaxMajors[t] + trainMaxMinors[t]) continue;
+            if (vertexMajor[v]) {
+                majorValues[major++] = value;
+            } else if (vertexMinor[v]) {
+                minorValues[minor++] = value;
+                // minors can use the majors of the train: the few reachable majors might be of lower value
+                if (useReachabilityBounds && !trainIgnoreMinors[t]) {
+                    majorValues[major++] = value;
+                }
+            } else { // define it as bonus
+                bonusValues[bonus++] = value;
+            }
+        }
+        // add the (complex) bonuses
+        for (int b=0; b < nbBonuses; b++) {
+            if (bonusValue[b] <= 0 || !bonusActiveForTrain[b][t]) continue;
+            bonusValues[bonus++] = bonusValue[b];
+        }
+
+        majorRevenues[t] = bestRevenues(majorValues, trainMaxMajors[t]);
+        minorRevenues[t] = bestRevenues(minorValues, trainMaxMinors[t]);
+        // the number of bonuses is defined by the unrestricted values
+        if (stopsToVertex == null) {
+            bonusRevenues[t] = bestRevenues(bonusValues, bonus);
+        } else {
+            bonusRevenues[t] = bestRevenues(bonusValues, trainMaxBonuses[t]);
+        }
+        return bonus;
+    }
+
+    private int trainRevenueBound(final int t, final int[][] majorRevenues, final int[][] minorRevenues,
+            final int[][] bonusRevenues) {
+        return majorRevenues[t][trainMaxMajors[t]] + minorRevenues[t][trainMaxMinors[t]]
+                + bonusRevenues[t][trainMaxBonuses[t]];
+    }
+
+    /**
+     * Calculates the minimum number of stations a run has to visit to include a vertex.
+     * As runs cannot pass sinks (except at the start vertex) these are not passed either.
+     * @param countMinors if false only majors are counted
+     * @return stations required for each vertex, Integer.MAX_VALUE if vertex cannot be reached
+     */
+    private int[] stopsFromStartVertex(final int startVertex, final boolean countMinors) {
+        int[] stops = new int[nbVertexes];
+        Arrays.fill(stops, Integer.MAX_VALUE);
+
+        // vertex costs are either zero or one, thus a deque replaces the priority queue
+        Deque<Integer> queue = new ArrayDeque<>();
+        stops[startVertex] = stopCost(startVertex, countMinors);
+        queue.add(startVertex);
+        while (!queue.isEmpty()) {
+            int vertexId = queue.pollFirst();
+            if (vertexSink[vertexId] && vertexId != startVertex) continue;
+            for (int j = vertexNeighborOffset[vertexId]; j < vertexNeighborOffset[vertexId + 1]; j++) {
+                int neighborId = vertexNeighbors[j];
+                int cost = stopCost(neighborId, countMinors);
+                if (stops[vertexId] + cost < stops[neighborId]) {
+                    stops[neighborId] = stops[vertexId] + cost;
+                    if (cost == 0) {
+                        queue.addFirst(neighborId);
+                    } else {
+                        queue.addLast(neighborId);
+                    }
+                }
+            }
+        }
+        log.debug("RC: stops from start vertex {} (countMinors = {}) = {}", startVertex, countMinors, Arrays.toString(stops));
+        return stops;
+    }
+
+    private int stopCost(final int vertexId, final boolean countMinors) {
+        if (vertexMajor[vertexId] || countMinors && vertexMinor[vertexId]) {
+            return 1;
+        } else {
+            return 0;
+        }
+    }
+
     final void initRuns(final int startTrain, final int finalTrain) {
         log.debug("RC: init runs from {} to {}", startTrain, finalTrain);
         if (startTrain > finalTrain) return;
@@ -338,12 +650,75 @@ abstract class RevenueCalculator {
         this.startTrainSet = startTrain;
         this.finalTrainSet = finalTrain;
 
+        // reset termination
+        aborted = false;
+        countChecks = 0;
+        Arrays.fill(trainNbVisits, 0);
+
         // initialize all trains and currentValues
         for (int i = startTrain; i < finalTrain; i++) {
             currentBestRun[i][0] = -1;
         }
         currentBestValue = 0;
 
+        initIdenticalTrains();
+    }
+
+    /**
+     * Identical trains are interchangeable, thus only one ordering of their runs has to be searched.
+     * Trains are identical if they have the same length, type, vertex values and bonuses.
+     * Dynamic modifiers might distinguish the trains, thus the trains are never identical in that case.
+     */
+    private void initIdenticalTrains() {
+        for (int t = 0; t < nbTrains; t++) {
+            trainIdenticalTo[t] = -1;
+            if (!useSymmetryBreaking || callDynamicModifiers) continue;
+            for (int p = t - 1; p >= 0; p--) {
+                if (isIdenticalTrain(p, t)) {
+                    trainIdenticalTo[t] = p;
+                    break;
+                }
+            }
+        }
+        log.debug("RC: identical trains = {}", Arrays.toString(trainIdenticalTo));
+    }
+
+    private boolean isIdenticalTrain(final int t1, final int t2) {
+        if (trainMaxMajors[t1] != trainMaxMajors[t2] || trainMaxMinors[t1] != trainMaxMinors[t2]
+                || trainIgnoreMinors[t1] != trainIgnoreMinors[t2]
+                || trainIsH[t1] != trainIsH[t2] || trainIsE[t1] != trainIsE[t2]) {
+            return false;
+        }
+        for (int v = 0; v < nbVertexes; v++) {
+            if (vertexValueByTrain[v * nbTrains + t1] != vertexValueByTrain[v * nbTrains + t2]) return false;
+        }
+        for (int b = 0; b < nbBonuses; b++) {
+            if (bonusActiveForTrain[b][t1] != bonusActiveForTrain[b][t2]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Symmetry breaking: a train runs after a previous identical train
+     * in the order of start vertex and start edge
+     * @return index of the first start vertex the train may use,
+     * startVertexes.length if the train must not run (as the previous identical train does not run)
+     */
+    protected final int firstStartIndex(final int trainId) {
+        int previous = trainIdenticalTo[trainId];
+        if (previous < startTrain) return 0;
+        int previousIndex = trainStartIndex[previous];
+        if (previousIndex < 0) return startVertexes.length;
+        return previousIndex;
+    }
+
+    /**
+     * @return true if the start edge is excluded by symmetry breaking for the start vertex given
+     */
+    protected final boolean isSymmetricStart(final int trainId, final int startIndex, final int startEdge) {
+        int previous = trainIdenticalTo[trainId];
+        return previous >= startTrain && startIndex == trainStartIndex[previous]
+                && startEdge <= trainStartEdge[previous];
     }
     final void executePredictions(final int startTrain, final int finalTrain) {
 
@@ -358,7 +733,7 @@ abstract class RevenueCalculator {
         }
 
         // start prediction runs
-        nbEvaluations = 0; nbPredictions = 0; nbEdgesTravelled = 0;
+        resetStatistics();
 
         log.info("RC: start individual prediction Runs");
         int[] maxSingleTrainRevenues = new int[nbTrains];
@@ -406,8 +781,190 @@ abstract class RevenueCalculator {
         return currentBestValue;
     }
 
+    /**
+     * Parallel version of calculateRevenue:
+     * The search is split into tasks at the start vertexes and start edges of the start train.
+     * The tasks share the best value found for pruning, the result is identical to the sequential search.
+     * If dynamic modifiers are active, the sequential search is used.
+     */
+    final int calculateRevenueParallel(final int startTrain, final int finalTrain, final ForkJoinPool pool) {
+        log.debug("RC: calculateRevenueParallel trains from {} to {}", startTrain, finalTrain);
+
+        if (callDynamicModifiers || startVertexes.length == 0) {
+            return calculateRevenue(startTrain, finalTrain);
+        }
+
+        this.startTrain = startTrain;
+        this.finalTrain = finalTrain;
+
+        // the current best value (from the predictions) precedes all tasks
+        AtomicLong sharedBest = new AtomicLong(rankedValue(currentBestValue, 0));
+        // define the tasks in the order of the sequential search
+        final List<SearchTask> tasks = new ArrayList<>();
+        for (int i=0; i < startVertexes.length; i++) {
+            for (int j=0; j < getNbNeighbors(startVertexes[i]); j++) {
+                tasks.add(new SearchTask(this, sharedBest, tasks.size() + 1, i, j));
+            }
+        }
+        // finally the start train does not run at all
+        tasks.add(new SearchTask(this, sharedBest, tasks.size() + 1, startVertexes.length, -1));
+        log.debug("RC: start {} parallel tasks", tasks.size());
+
+        pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        // the first task in search order with the best value defines the optimal run
+        for (SearchTask task:tasks) {
+            RevenueCalculator worker = task.worker;
+            nbEvaluations += worker.nbEvaluations;
+            nbPredictions += worker.nbPredictions;
+            nbPrunes += worker.nbPrunes;
+            nbEdgesTravelled += worker.nbEdgesTravelled;
+            for (int j = startTrainSet; j <= finalTrainSet; j++) {
+                trainNbVisits[j] += worker.trainNbVisits[j];
+            }
+            aborted |= worker.aborted;
+            if (worker.currentBestValue > currentBestValue) {
+                currentBestValue = worker.currentBestValue;
+                for (int j = startTrainSet; j <= finalTrainSet; j++) {
+                    System.arraycopy(worker.currentBestRun[j], 0, currentBestRun[j], 0, nbVertexes + 1);
+                }
+            }
+        }
+
+        // inform revenue listener via adapter
+        notifyRevenueAdapter(currentBestValue, specialRevenue, true);
+
+        return currentBestValue;
+    }
+
+    /**
+     * Task of the parallel search: runs the start train from one start vertex and start edge only
+     */
+    private static final class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RevenueCalculator master;
+        private final AtomicLong sharedBestValue;
+        private final int rank;
+        private final int startVertex;
+        private final int startEdge;
+
+        private RevenueCalculator worker;
+
+        private SearchTask(RevenueCalculator master, AtomicLong sharedBestValue, int rank,
+                int startVertex, int startEdge) {
+            this.master = master;
+            this.sharedBestValue = sharedBestValue;
+            this.rank = rank;
+            this.startVertex = startVertex;
+            this.startEdge = startEdge;
+        }
+
+        @Override
+        protected void compute() {
+            worker = master.createWorker();
+            worker.sharedBestValue = sharedBestValue;
+            worker.forkRank = rank;
+            worker.forkTrain = worker.startTrain;
+            worker.forkVertex = startVertex;
+            worker.forkEdge = startEdge;
+            worker.checkTermination();
+            worker.runTrain(worker.startTrain);
+        }
+    }
+
     protected abstract void runTrain(final int trainId);
 
+    /**
+     * @return number of vertices in the current run of the train (base vertex repeated for bottom run)
+     */
+    protected abstract int getRunLength(final int trainId);
+
+    protected abstract int getRunVertex(final int trainId, final int position);
+
+    final RevenueRunView getRunView() {
+        return runView;
+    }
+
+    /**
+     * Allocation free view on the current run, used by dynamic modifiers
+     */
+    private final class RunView implements RevenueRunView {
+
+        public int getStartTrain() {
+            return startTrain;
+        }
+
+        public int getFinalTrain() {
+            return finalTrain;
+        }
+
+        public NetworkTrain getTrain(int trainId) {
+            return revenueAdapter.getTrains().get(trainId);
+        }
+
+        public int getRunLength(int trainId) {
+            if (trainId < startTrain || trainId > finalTrain) return 0;
+            return RevenueCalculator.this.getRunLength(trainId);
+        }
+
+        public int getRunVertex(int trainId, int position) {
+            return RevenueCalculator.this.getRunVertex(trainId, position);
+        }
+
+        public int getRunValue(int trainId) {
+            if (trainId < startTrain || trainId > finalTrain) return 0;
+            return trainCurrentValue[trainId];
+        }
+
+        public NetworkVertex getVertex(int vertexId) {
+            return revenueAdapter.getRCVertex(vertexId);
+        }
+
+        public int getVertexValue(int vertexId, int trainId) {
+            return vertexValueByTrain[vertexId * nbTrains + trainId];
+        }
+
+        public boolean isMajor(int vertexId) {
+            return vertexMajor[vertexId];
+        }
+
+        public boolean isMinor(int vertexId) {
+            return vertexMinor[vertexId];
+        }
+
+        public int getVertexNbBonuses(int vertexId) {
+            return vertexNbBonusSets[vertexId];
+        }
+
+        public int getVertexBonus(int vertexId, int index) {
+            return vertexBonusSets[vertexId][index];
+        }
+
+        public int getNbBonuses() {
+            return nbBonuses;
+        }
+
+        public int getBonusValue(int bonusId) {
+            return bonusValue[bonusId];
+        }
+
+        public boolean isBonusActive(int bonusId, int trainId) {
+            return bonusActiveForTrain[bonusId][trainId];
+        }
+
+        public boolean isBonusReached(int bonusId, int trainId) {
+            return bonusActiveForTrain[bonusId][trainId] && bonusTrainVertices[bonusId][trainId] == 0;
+        }
+    }
+
     protected abstract void runBottom(final int trainId);
 
 
@@ -424,7 +981,7 @@ abstract class RevenueCalculator {
 
         boolean stationVertex = false;
         if (arrive) {
-            trainCurrentValue[trainId] += vertexValueByTrain[vertexId][trainId];
+            trainCurrentValue[trainId] += vertexValueByTrain[vertexId * nbTrains + trainId];
             if (vertexMajor[vertexId]) {
                 trainMajors[trainId]--;
                 stationVertex = true;
@@ -433,8 +990,12 @@ abstract class RevenueCalculator {
                 stationVertex = !trainIgnoreMinors[trainId];
             }
             countVisits++;
+            trainNbVisits[trainId]++;
+            if ((useDeadline || cancellation != null) && (++countChecks & TERMINATION_CHECK_MASK) == 0) {
+                checkTermination();
+            }
         } else {
-            trainCurrentValue[trainId] -= vertexValueByTrain[vertexId][trainId];
+            trainCurrentValue[trainId] -= vertexValueByTrain[vertexId * nbTrains + trainId];
             if (vertexMajor[vertexId]) {
                 trainMajors[trainId]++;
                 stationVertex = true;
@@ -508,11 +1069,24 @@ abstract class RevenueCalculator {
 
         if (trainId == finalTrain) {
             evaluateResults();
+        } else if (useDominancePruning && !callDynamicModifiers && isDominatedRun(trainId)) {
+            nbDominated++;
+            log.debug("RC: Run of train {} is dominated by a previous run", trainId);
         } else {
             runTrain(trainId + 1);
         }
     }
 
+    /**
+     * Dominance pruning: the following trains only depend on the edges used by the run,
+     * thus a run that uses all edges of a previous run of the same train (with unchanged runs of
+     * the trains before) but has no higher value cannot improve the best value.
+     * @return true if the current run of the train is dominated by a previous run
+     */
+    protected boolean isDominatedRun(final int trainId) {
+        return false;
+    }
+
     protected final void evaluateResults() {
         // sum to total value
         int totalValue = 0;
@@ -553,7 +1127,12 @@ abstract class RevenueCalculator {
             log.debug("RC: Found better run with {}", totalValue);
             // inform revenue listener via adapter
             // special revenue only to be reported with the final result
-            notifyRevenueAdapter(currentBestValue, specialRevenue, false);
+            if (sharedBestValue == null) {
+                notifyRevenueAdapter(currentBestValue, specialRevenue, false);
+            } else if (publishBestValue(rankedValue(totalValue, forkRank))) {
+                // parallel search: only report improvements of the shared value
+                notifyRevenueAdapter(totalValue, specialRevenue, false);
+            }
         }
     }
 
@@ -564,26 +1143,35 @@ abstract class RevenueCalculator {
         if (trainId < finalTrain)
              totalValue = maxCumulatedTrainRevenues[trainId + 1];
 
-        // predict the current train
+        // predict the current train, after the start vertex is chosen only vertices reachable from it count
+        int[][] majorRevenues = maxMajorRevenues;
+        int[][] minorRevenues = maxMinorRevenues;
+        int[][] bonusRevenues = maxBonusRevenues;
+        int startIndex = trainStartIndex[trainId];
+        if (startIndex >= 0 && maxMajorRevenuesByStart != null) {
+            majorRevenues = maxMajorRevenuesByStart[startIndex];
+            minorRevenues = maxMinorRevenuesByStart[startIndex];
+            bonusRevenues = maxBonusRevenuesByStart[startIndex];
+        }
         int trainValue = trainCurrentValue[trainId];
         if (trainIgnoreMinors[trainId]) {
             // express train
-            trainValue += maxMajorRevenues[trainId][trainMajors[trainId]];
+            trainValue += majorRevenues[trainId][trainMajors[trainId]];
         } else {
             if (trainMinors[trainId] > 0){
-                trainValue += maxMajorRevenues[trainId][trainMajors[trainId]];
-                trainValue += maxMinorRevenues[trainId][trainMinors[trainId]];
+                trainValue += majorRevenues[trainId][trainMajors[trainId]];
+                trainValue += minorRevenues[trainId][trainMinors[trainId]];
             } else { // <= 0
                 int trainStations = trainMajors[trainId] + trainMinors[trainId];
                 // trainStations can be zero or negative (for H trains)
                 if (trainStations > 0) {
-                    trainValue += maxMajorRevenues[trainId][trainStations];
+                    trainValue += majorRevenues[trainId][trainStations];
                 }
             }
         }
         // add potential bonuses
         if (trainBonuses[trainId] != 0) {
-            trainValue += maxBonusRevenues[trainId][trainBonuses[trainId]];
+            trainValue += bonusRevenues[trainId][trainBonuses[trainId]];
         }
         log.debug("RC: Current train has predicted  value of {}", trainValue);
 
@@ -608,21 +1196,51 @@ abstract class RevenueCalculator {
         nbPredictions++;
 
         boolean terminate = (totalValue <= currentBestValue);
-        if (terminate) log.debug("Run terminated due to predicted value of {}", totalValue);
+        // parallel search: a run of equal value only prunes if it comes first in search order
+        if (!terminate && sharedBestValue != null) {
+            terminate = (rankedValue(totalValue, forkRank) <= sharedBestValue.get());
+        }
+        if (terminate) {
+            nbPrunes++;
+            log.debug("Run terminated due to predicted value of {}", totalValue);
+        }
 
         return terminate;
     }
 
 
+    /**
+     * Combines value and search order of a worker into one comparable number:
+     * Higher values first, for equal values the lower rank (earlier in search order) first
+     */
+    private static long rankedValue(final int value, final int rank) {
+        return ((long) value << 32) | (Integer.MAX_VALUE - rank);
+    }
+
+    /**
+     * @return true if the ranked value has increased the value part of the shared best value
+     */
+    private boolean publishBestValue(final long rankedValue) {
+        long sharedValue = sharedBestValue.get();
+        while (rankedValue > sharedValue) {
+            if (sharedBestValue.compareAndSet(sharedValue, rankedValue)) {
+                return (rankedValue >> 32) > (sharedValue >> 32);
+            }
+            sharedValue = sharedBestValue.get();
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
         StringBuilder buffer = new StringBuilder();
 
-        buffer.append("vertexValuesByTrain:").append(Arrays.deepToString(vertexValueByTrain)).append("\n");
+        buffer.append("vertexValuesByTrain:").append(Arrays.toString(vertexValueByTrain)).append("\n");
         buffer.append("vertexMajor:").append(Arrays.toString(vertexMajor)).append("\n");
         buffer.append("vertexMinor:").append(Arrays.toString(vertexMinor)).append("\n");
-        buffer.append("vertexNeighbors:").append(Arrays.deepToString(vertexNeighbors)).append("\n");
-        buffer.append("vertexEdges:").append(Arrays.deepToString(vertexEdges)).append("\n");
+        buffer.append("vertexNeighborOffset:").append(Arrays.toString(vertexNeighborOffset)).append("\n");
+        buffer.append("vertexNeighbors:").append(Arrays.toString(vertexNeighbors)).append("\n");
+        buffer.append("vertexEdges:").append(Arrays.toString(vertexEdges)).append("\n");
         buffer.append("vertexVisitSets:").append(Arrays.deepToString(vertexVisitSets)).append("\n");
         buffer.append("vertexBonusSets:").append(Arrays.deepToString(vertexBonusSets)).append("\n");
         buffer.append("vertexNbVisitSets:").append(Arrays.toString(vertexNbVisitSets)).append("\n");
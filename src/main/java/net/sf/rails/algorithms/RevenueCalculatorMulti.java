@@ -1,5 +1,7 @@
 package net.sf.rails.algorithms;
 
+import java.util.Arrays;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,6 +19,15 @@ class RevenueCalculatorMulti extends RevenueCalculator {
 
     // dynamic train data
     private final int[] startVertexActive;
+    private final int[][] trainVertexStack; // vertices of the run, the stack stores edges
+    private final int[] trainVertexStackPos;
+
+    // dominance pruning: edge sets and values of the previous runs of each train
+    private static final int DOMINANCE_RUNS = 32; // number of runs stored per train
+    private final long[][][] dominanceEdges; // dimensions: train x run x edge words
+    private final int[][] dominanceValues; // dimensions: train x run
+    private final int[] dominanceCount; // runs stored since the start of the train
+    private final long[] runEdges; // edge set of the current run
 
 
     public RevenueCalculatorMulti (RevenueAdapter revenueAdapter, int nbVertexes, int nbEdges,
@@ -33,7 +44,40 @@ class RevenueCalculatorMulti extends RevenueCalculator {
         edgeUsed = new int[nbEdges];
 
         startVertexActive = new int[nbTrains];
+        trainVertexStack = new int[nbTrains][nbVertexes + 1];
+        trainVertexStackPos = new int[nbTrains];
+
+        dominanceEdges = new long[nbTrains][DOMINANCE_RUNS][(nbEdges + 63) >> 6];
+        dominanceValues = new int[nbTrains][DOMINANCE_RUNS];
+        dominanceCount = new int[nbTrains];
+        runEdges = new long[(nbEdges + 63) >> 6];
+    }
+
+    protected RevenueCalculatorMulti(RevenueCalculatorMulti master) {
+        super(master);
+
+        edgeNbTravelSets = master.edgeNbTravelSets;
+        edgeTravelSets = master.edgeTravelSets;
+
+        edgeUsed = new int[nbEdges];
+        startVertexActive = new int[nbTrains];
+        trainVertexStack = new int[nbTrains][nbVertexes + 1];
+        trainVertexStackPos = new int[nbTrains];
 
+        dominanceEdges = new long[nbTrains][DOMINANCE_RUNS][(nbEdges + 63) >> 6];
+        dominanceValues = new int[nbTrains][DOMINANCE_RUNS];
+        dominanceCount = new int[nbTrains];
+        runEdges = new long[(nbEdges + 63) >> 6];
+    }
+
+    @Override
+    protected RevenueCalculator createWorker() {
+        return new RevenueCalculatorMulti(this);
+    }
+
+    @Override
+    RevenueStatistics.Variant getVariant() {
+        return RevenueStatistics.Variant.MULTI;
     }
 
     @Override
@@ -54,9 +98,15 @@ class RevenueCalculatorMulti extends RevenueCalculator {
     protected void runTrain(final int trainId) {
         log.debug("RCM: runTrain {}", trainId);
 
+        // search stopped before completion
+        if (aborted) return;
+
         // initialize value
         trainCurrentValue[trainId] = 0;
 
+        // runs of the previous trains have changed
+        dominanceCount[trainId] = 0;
+
         // initialize train lengths
         trainMajors[trainId] = trainMaxMajors[trainId];
         trainMinors[trainId] = trainMaxMinors[trainId];
@@ -64,6 +114,7 @@ class RevenueCalculatorMulti extends RevenueCalculator {
 
         // initialize the positions
         trainStackPos[trainId] = 0;
+        trainVertexStackPos[trainId] = 0;
         trainBottomActive[trainId] = false;
 
         // initialize bonuses
@@ -76,15 +127,30 @@ class RevenueCalculatorMulti extends RevenueCalculator {
             return;
 
         // try all startVertexes
+        int firstStartIndex = firstStartIndex(trainId);
         for (int i=0; i < startVertexes.length; i++) {
+            if (aborted) break;
             int vertexId = startVertexes[i];
+            if (trainId == forkTrain && i != forkVertex) {
+                // parallel search: previous start vertexes are already finished
+                if (i < forkVertex) trainVisited[trainId][vertexId] = true;
+                continue;
+            }
+            if (i < firstStartIndex) {
+                // symmetry breaking: previous start vertexes are covered by an identical train
+                trainVisited[trainId][vertexId] = true;
+                continue;
+            }
             log.debug("RCM: Using startVertex nr. {} for train {}", i, trainId);
+            trainStartIndex[trainId] = i;
             boolean stationVertex = encounterVertex(trainId, vertexId, true);
+            trainVertexStack[trainId][trainVertexStackPos[trainId]++] = vertexId; // push to vertex stack
             if (stationVertex) {
                 // train cannot terminate at start vertex
                 if (useRevenuePrediction && predictRevenues(trainId)) {
                     // cannot beat current best value => leave immediately
                     encounterVertex(trainId, vertexId, false);
+                    trainVertexStackPos[trainId]--; // pull from vertex stack
                     // but keep them on the visited vertex list to avoid route duplication
                     trainVisited[trainId][vertexId] = true;
                     log.debug("RCM: finished startVertex {} for train {}", vertexId, trainId);
@@ -95,11 +161,16 @@ class RevenueCalculatorMulti extends RevenueCalculator {
             // then try all edges of it
             startVertexActive[trainId] = vertexId;
             // for startVertices the sink property is ignored
-            for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
-                int edgeId = vertexEdges[vertexId][j];
+            int neighborOffset = vertexNeighborOffset[vertexId];
+            int nbNeighbors = vertexNeighborOffset[vertexId + 1] - neighborOffset;
+            for (int j = 0; j < nbNeighbors; j++) {
+                if (aborted) break;
+                if (trainId == forkTrain && j != forkEdge) continue;
+                if (isSymmetricStart(trainId, i, j)) continue;
+                int edgeId = vertexEdges[neighborOffset + j];
                 if (edgeUsed[edgeId] != 0) continue;
                 log.debug("RCM: Testing Neighbor Nr. {} of startVertex", j);
-                int neighborId = vertexNeighbors[vertexId][j];
+                int neighborId = vertexNeighbors[neighborOffset + j];
                 if (trainVisited[trainId][neighborId]) {
                     log.debug("RCM: Hex already visited");
                     continue;
@@ -113,19 +184,23 @@ class RevenueCalculatorMulti extends RevenueCalculator {
 
             // no more edges to find
             encounterVertex(trainId, vertexId, false);
+            trainVertexStackPos[trainId]--; // pull from vertex stack
             // keep them on the visited vertex list to avoid route duplication
             trainVisited[trainId][vertexId] = true;
             log.debug("RCM: finished startVertex {} for train {}", vertexId, trainId);
         }
 
         // finished all tries
+        trainStartIndex[trainId] = -1;
         for ( int startVertex : startVertexes ) {
             // remove all of them from the visited vertex list
             trainVisited[trainId][startVertex] = false;
         }
 
         // allow that the train does not run at all
-        finalizeVertex(trainId, -1);
+        if (trainId != forkTrain || forkVertex == startVertexes.length) {
+            finalizeVertex(trainId, -1);
+        }
 
         log.debug("RCM: finishTrain {}", trainId);
 
@@ -144,13 +219,17 @@ class RevenueCalculatorMulti extends RevenueCalculator {
 
         // push to stack
         trainBottomActive[trainId] = true;
+        trainVertexStack[trainId][trainVertexStackPos[trainId]++] = vertexId; // push to vertex stack
         log.debug("RCM: Restart at bottom at stack position {}", trainStackPos[trainId]);
 //        trainStack[trainId][trainStackPos[trainId]++] = vertexId;
 
-        for (int j = trainStartEdge[trainId] + 1; j < vertexNbNeighbors[vertexId]; j++) {
-            int edgeId = vertexEdges[vertexId][j];
+        int neighborOffset = vertexNeighborOffset[vertexId];
+        int nbNeighbors = vertexNeighborOffset[vertexId + 1] - neighborOffset;
+        for (int j = trainStartEdge[trainId] + 1; j < nbNeighbors; j++) {
+            if (aborted) break;
+            int edgeId = vertexEdges[neighborOffset + j];
             if (edgeUsed[edgeId] != 0) continue;
-            int neighborId = vertexNeighbors[vertexId][j];
+            int neighborId = vertexNeighbors[neighborOffset + j];
             log.debug("RCM: Testing Neighbor Nr. {} of bottomVertex is {}", j, neighborId);
             if (trainVisited[trainId][neighborId]) {
                 log.debug(" RCM: Hex already visited");
@@ -163,6 +242,7 @@ class RevenueCalculatorMulti extends RevenueCalculator {
         }
 
 //        trainStackPos[trainId]--; // pull from stack
+        trainVertexStackPos[trainId]--; // pull from vertex stack
         trainBottomActive[trainId] = false;
         log.debug("RCM: finished bottom of {}", trainId);
 
@@ -174,6 +254,7 @@ class RevenueCalculatorMulti extends RevenueCalculator {
         // 1. encounterVertex adds value and returns true if value vertex
         Terminated trainTerminated = Terminated.NOT_YET;
         boolean stationVertex = encounterVertex(trainId, vertexId, true);
+        trainVertexStack[trainId][trainVertexStackPos[trainId]++] = vertexId; // push to vertex stack
         if (stationVertex) {
             // check usual train termination
             trainTerminated = trainTerminated(trainId);
@@ -181,17 +262,25 @@ class RevenueCalculatorMulti extends RevenueCalculator {
                     useRevenuePrediction && predictRevenues(trainId)) {
                 // cannot beat current best value => leave immediately
                 encounterVertex(trainId, vertexId, false);
+                trainVertexStackPos[trainId]--; // pull from vertex stack
                 return;
             }
         }
 
+        // dominance pruning compares with previous runs, thus the run is evaluated before its extensions
+        if (stationVertex && useDominancePruning)
+            finalizeVertex(trainId, vertexId);
+
         // 2a. visit neighbors, if train has not terminated and vertex is not a sink
         if (trainTerminated == Terminated.NOT_YET ) {
             if (!vertexSink[vertexId]) {
-                for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
-                    int edgeId = vertexEdges[vertexId][j];
+                int neighborOffset = vertexNeighborOffset[vertexId];
+                int nbNeighbors = vertexNeighborOffset[vertexId + 1] - neighborOffset;
+                for (int j = 0; j < nbNeighbors; j++) {
+                    if (aborted) break;
+                    int edgeId = vertexEdges[neighborOffset + j];
                     if (edgeUsed[edgeId] != 0) continue;
-                    int neighborId = vertexNeighbors[vertexId][j];
+                    int neighborId = vertexNeighbors[neighborOffset + j];
                     log.debug("RCM: Testing Neighbor Nr. {} of {} is {}", j, vertexId, neighborId);
                     if (trainVisited[trainId][neighborId]) {
                         log.debug("RCM: Hex already visited");
@@ -210,11 +299,50 @@ class RevenueCalculatorMulti extends RevenueCalculator {
         }
 
         // 3. no more edges to visit from here => evaluate or start new train
-        if (stationVertex)
+        if (stationVertex && !useDominancePruning)
             finalizeVertex(trainId, vertexId);
 
         // 4. then leave that vertex
         encounterVertex(trainId, vertexId, false);
+        trainVertexStackPos[trainId]--; // pull from vertex stack
+    }
+
+    @Override
+    protected boolean isDominatedRun(final int trainId) {
+        Arrays.fill(runEdges, 0);
+        for (int p = 0; p < trainStackPos[trainId]; p++) {
+            int edgeId = trainStack[trainId][p];
+            runEdges[edgeId >> 6] |= 1L << edgeId;
+        }
+        int value = trainCurrentValue[trainId];
+
+        // compare with the stored runs
+        int nbRuns = Math.min(dominanceCount[trainId], DOMINANCE_RUNS);
+        for (int r = 0; r < nbRuns; r++) {
+            if (dominanceValues[trainId][r] < value) continue;
+            long[] edges = dominanceEdges[trainId][r];
+            boolean subset = true;
+            for (int w = 0; w < edges.length && subset; w++) {
+                subset = (edges[w] & ~runEdges[w]) == 0;
+            }
+            if (subset) return true;
+        }
+
+        // store the run, replacing the oldest one
+        int r = dominanceCount[trainId]++ % DOMINANCE_RUNS;
+        System.arraycopy(runEdges, 0, dominanceEdges[trainId][r], 0, runEdges.length);
+        dominanceValues[trainId][r] = value;
+        return false;
+    }
+
+    @Override
+    protected final int getRunLength(final int trainId) {
+        return trainVertexStackPos[trainId];
+    }
+
+    @Override
+    protected final int getRunVertex(final int trainId, final int position) {
+        return trainVertexStack[trainId][position];
     }
 
     protected void travelEdge(final int trainId, final int edgeId) {
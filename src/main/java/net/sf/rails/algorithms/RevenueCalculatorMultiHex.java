@@ -15,6 +15,20 @@ class RevenueCalculatorMultiHex extends RevenueCalculatorMulti {
 
     }
 
+    private RevenueCalculatorMultiHex(RevenueCalculatorMultiHex master) {
+        super(master);
+    }
+
+    @Override
+    protected RevenueCalculator createWorker() {
+        return new RevenueCalculatorMultiHex(this);
+    }
+
+    @Override
+    RevenueStatistics.Variant getVariant() {
+        return RevenueStatistics.Variant.MULTI_HEX;
+    }
+
     @Override
     protected void runTrain(int trainId) {
         // init train distance
@@ -22,10 +22,28 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
 
     }
 
+    private RevenueCalculatorSimple(RevenueCalculatorSimple master) {
+        super(master);
+        edgeUsed = new boolean[nbEdges];
+    }
+
+    @Override
+    protected RevenueCalculator createWorker() {
+        return new RevenueCalculatorSimple(this);
+    }
+
+    @Override
+    RevenueStatistics.Variant getVariant() {
+        return RevenueStatistics.Variant.SIMPLE;
+    }
+
    @Override
    protected final void runTrain(final int trainId) {
        log.debug("RCS: runTrain {}", trainId);
 
+        // search stopped before completion
+        if (aborted) return;
+
         // initialize value
         trainCurrentValue[trainId] = 0;
 
@@ -48,9 +66,22 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
             return;
 
         // try all startVertexes
+        int firstStartIndex = firstStartIndex(trainId);
         for (int i=0; i < startVertexes.length; i++) {
+            if (aborted) break;
             int vertexId = startVertexes[i];
+            if (trainId == forkTrain && i != forkVertex) {
+                // parallel search: previous start vertexes are already finished
+                if (i < forkVertex) trainVisited[trainId][vertexId] = true;
+                continue;
+            }
+            if (i < firstStartIndex) {
+                // symmetry breaking: previous start vertexes are covered by an identical train
+                trainVisited[trainId][vertexId] = true;
+                continue;
+            }
             log.debug("RCS: Using startVertex nr. {} for train {}", i, trainId);
+            trainStartIndex[trainId] = i;
             boolean stationVertex = encounterVertex(trainId, vertexId, true);
             trainStack[trainId][trainStackPos[trainId]++] = vertexId; // push to stack
             if (stationVertex) {
@@ -68,11 +99,16 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
 
             // then try all edges of it
             // for startVertices the sink property is ignored
-            for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
-                int edgeId = vertexEdges[vertexId][j];
+            int neighborOffset = vertexNeighborOffset[vertexId];
+            int nbNeighbors = vertexNeighborOffset[vertexId + 1] - neighborOffset;
+            for (int j = 0; j < nbNeighbors; j++) {
+                if (aborted) break;
+                if (trainId == forkTrain && j != forkEdge) continue;
+                if (isSymmetricStart(trainId, i, j)) continue;
+                int edgeId = vertexEdges[neighborOffset + j];
                 if (edgeUsed[edgeId]) continue;
                 log.debug("RCS: Testing Neighbor Nr. {} of startVertex", j);
-                int neighborId = vertexNeighbors[vertexId][j];
+                int neighborId = vertexNeighbors[neighborOffset + j];
                 if (trainVisited[trainId][neighborId]) {
                     log.debug("RCS: Hex already visited");
                     continue;
@@ -93,13 +129,16 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
         }
 
         // finished all tries
+        trainStartIndex[trainId] = -1;
         for (int i=0; i < startVertexes.length; i++) {
             // remove all of them from the visited vertex list
             trainVisited[trainId][startVertexes[i]] = false;
         }
 
         // allow that the train does not run at all
-        finalizeVertex(trainId, -1);
+        if (trainId != forkTrain || forkVertex == startVertexes.length) {
+            finalizeVertex(trainId, -1);
+        }
 
        log.debug("RCS: finishTrain {}", trainId);
     }
@@ -120,10 +159,13 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
        log.debug("RCS: Restart at bottom at stack position {}", trainStackPos[trainId]);
        trainStack[trainId][trainStackPos[trainId]++] = vertexId;
 
-       for (int j = trainStartEdge[trainId] + 1; j < vertexNbNeighbors[vertexId]; j++) {
-           int edgeId = vertexEdges[vertexId][j];
+       int neighborOffset = vertexNeighborOffset[vertexId];
+       int nbNeighbors = vertexNeighborOffset[vertexId + 1] - neighborOffset;
+       for (int j = trainStartEdge[trainId] + 1; j < nbNeighbors; j++) {
+           if (aborted) break;
+           int edgeId = vertexEdges[neighborOffset + j];
            if (edgeUsed[edgeId]) continue;
-           int neighborId = vertexNeighbors[vertexId][j];
+           int neighborId = vertexNeighbors[neighborOffset + j];
            log.debug("RCS: Testing Neighbor Nr. {} of bottomVertex is {}", j, neighborId);
            if (trainVisited[trainId][neighborId]) {
                log.debug(" RCS: Hex already visited");
@@ -162,10 +204,13 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
        // 2a. visit neighbors, if train has not terminated and vertex is not a sink
        if (trainTerminated == Terminated.NOT_YET ) {
            if (!vertexSink[vertexId]) {
-               for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
-                   int edgeId = vertexEdges[vertexId][j];
+               int neighborOffset = vertexNeighborOffset[vertexId];
+               int nbNeighbors = vertexNeighborOffset[vertexId + 1] - neighborOffset;
+               for (int j = 0; j < nbNeighbors; j++) {
+                   if (aborted) break;
+                   int edgeId = vertexEdges[neighborOffset + j];
                    if (edgeUsed[edgeId]) continue;
-                   int neighborId = vertexNeighbors[vertexId][j];
+                   int neighborId = vertexNeighbors[neighborOffset + j];
                    log.debug("RCS: Testing Neighbor Nr. {} of {} is {}", j, vertexId, neighborId);
                    if (trainVisited[trainId][neighborId]) {
                        log.debug("RCS: Hex already visited");
@@ -192,6 +237,16 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
        trainStackPos[trainId]--; // pull from stack
    }
 
+   @Override
+   protected final int getRunLength(final int trainId) {
+       return trainStackPos[trainId];
+   }
+
+   @Override
+   protected final int getRunVertex(final int trainId, final int position) {
+       return trainStack[trainId][position];
+   }
+
    protected final boolean travelEdge(final int trainId, final int edgeId, final boolean previousGreedy) {
        if (previousGreedy || edgeGreedy[edgeId]) {
            log.debug("RCS: Travel edge id {}", edgeId);
@@ -0,0 +1,27 @@
+package net.sf.rails.algorithms;
+
+/**
+ * A dynamic modifier that evaluates the current run during the optimization
+ * by the {@link RevenueRunView}, thus avoiding the conversion into RevenueTrainRun objects.
+ *
+ * The methods with RevenueTrainRun lists are still used for the optimal run.
+ * Both versions have to return the same values.
+ */
+public interface RevenueDynamicViewModifier extends RevenueDynamicModifier {
+
+    /**
+     * Allocation free version of {@link RevenueDynamicModifier#predictionValue(java.util.List)}
+     * @param runView current run of the revenue calculator
+     * @return value used to change the prediction
+     */
+    public int predictionValue(RevenueRunView runView);
+
+    /**
+     * Allocation free version of {@link RevenueDynamicModifier#evaluationValue(java.util.List, boolean)}
+     * during optimization
+     * @param runView current run of the revenue calculator
+     * @return value used to change the run results
+     */
+    public int evaluationValue(RevenueRunView runView);
+
+}
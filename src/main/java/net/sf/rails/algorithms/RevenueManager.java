@@ -1,13 +1,17 @@
 package net.sf.rails.algorithms;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import net.sf.rails.common.LocalText;
 import net.sf.rails.common.parser.Configurable;
 import net.sf.rails.common.parser.ConfigurationException;
 import net.sf.rails.common.parser.Tag;
+import net.sf.rails.game.Phase;
 import net.sf.rails.game.PublicCompany;
 import net.sf.rails.game.RailsManager;
 import net.sf.rails.game.RailsRoot;
@@ -16,6 +20,8 @@ import net.sf.rails.game.state.ArrayListState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableList;
+
 
 /**
  * Coordinates and stores all elements related to revenue calulcation,
@@ -147,6 +153,19 @@ public final class RevenueManager extends RailsManager implements Configurable {
         return result;
     }
 
+    /**
+     * Calculates the optimal runs of several companies (e.g. projections for all operating companies)
+     * @see RevenueAdapter#calculateAll(RailsRoot, Collection, Phase, ExecutorService)
+     */
+    public Map<PublicCompany, RevenueResult> calculateAll(Collection<PublicCompany> companies, Phase phase) {
+        return RevenueAdapter.calculateAll(getRoot(), companies, phase);
+    }
+
+    public Map<PublicCompany, RevenueResult> calculateAll(Collection<PublicCompany> companies, Phase phase,
+            ExecutorService executor) {
+        return RevenueAdapter.calculateAll(getRoot(), companies, phase, executor);
+    }
+
     public void addDynamicModifier(RevenueDynamicModifier modifier) {
         dynamicModifiers.add(modifier);
         log.debug("Revenue Manager: Added dynamic modifier {}", modifier);
@@ -197,6 +216,25 @@ public final class RevenueManager extends RailsManager implements Configurable {
         return !activeDynamicModifiers.isEmpty();
     }
 
+    boolean hasCalculatorModifier() {
+        return calculatorModifier != null;
+    }
+
+    /**
+     * @return hash of the identities of all registered modifiers, used for the revenue cache key
+     */
+    int hashModifiers() {
+        int hash = System.identityHashCode(calculatorModifier);
+        for (List<?> modifiers : ImmutableList.of(graphModifiers.view(), staticModifiers.view(),
+                dynamicModifiers.view())) {
+            hash = 31 * hash + modifiers.size();
+            for (Object modifier : modifiers) {
+                hash = 31 * hash + System.identityHashCode(modifier);
+            }
+        }
+        return hash;
+    }
+
     /**
      * @param revenueAdapter
      * @return revenue from active calculator
@@ -239,18 +277,50 @@ public final class RevenueManager extends RailsManager implements Configurable {
         return value;
     }
 
+    /**
+     * Evaluation during the optimization: modifiers that support the run view
+     * are called without conversion of the current run
+     * @param runView view on the current run of the revenue calculator
+     * @return total value of dynamic modifiers
+     */
+    int evaluationValue(RevenueAdapter revenueAdapter, RevenueRunView runView) {
+        int value = 0;
+        List<RevenueTrainRun> run = null;
+        for (RevenueDynamicModifier modifier : activeDynamicModifiers) {
+            if (modifier instanceof RevenueDynamicViewModifier) {
+                value += ((RevenueDynamicViewModifier) modifier).evaluationValue(runView);
+            } else {
+                // convert only once for all other modifiers
+                if (run == null) run = revenueAdapter.getCurrentRun();
+                value += modifier.evaluationValue(run, false);
+            }
+        }
+        if (calculatorModifier != null) {
+            specialRevenue = calculatorModifier.getSpecialRevenue();
+        }
+        return value;
+    }
+
     public int getSpecialRevenue () {
         return specialRevenue;
     }
 
     /**
+     * @param runView view on the current run of the revenue calculator
      * @return total prediction value of dynamic modifiers
      */
-    int predictionValue(List<RevenueTrainRun> run) {
+    int predictionValue(RevenueAdapter revenueAdapter, RevenueRunView runView) {
         // do not change the optimal run!
         int value = 0;
+        List<RevenueTrainRun> run = null;
         for (RevenueDynamicModifier modifier : activeDynamicModifiers) {
-            value += modifier.predictionValue(run);
+            if (modifier instanceof RevenueDynamicViewModifier) {
+                value += ((RevenueDynamicViewModifier) modifier).predictionValue(runView);
+            } else {
+                // convert only once for all other modifiers
+                if (run == null) run = revenueAdapter.getCurrentRun();
+                value += modifier.predictionValue(run);
+            }
         }
         return value;
     }
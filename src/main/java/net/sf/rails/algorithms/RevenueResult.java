@@ -0,0 +1,63 @@
+package net.sf.rails.algorithms;
+
+import java.util.List;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * RevenueResult stores the outcome of a revenue calculation.
+ * If the calculation was stopped (time budget exceeded or cancelled) it contains the best run found so far.
+ */
+public final class RevenueResult {
+
+    private final int value;
+    private final int specialRevenue;
+    private final List<RevenueTrainRun> run;
+    private final boolean optimal;
+    private final RevenueStatistics statistics;
+
+    RevenueResult(int value, int specialRevenue, List<RevenueTrainRun> run, boolean optimal,
+            RevenueStatistics statistics) {
+        this.value = value;
+        this.specialRevenue = specialRevenue;
+        this.run = run;
+        this.optimal = optimal;
+        this.statistics = statistics;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public int getSpecialRevenue() {
+        return specialRevenue;
+    }
+
+    public List<RevenueTrainRun> getRun() {
+        return run;
+    }
+
+    /**
+     * @return true if the search was completed, thus the run is proven to be optimal
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /**
+     * @return statistics of the calculation, null if no calculation was required
+     */
+    public RevenueStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("value", value)
+                .add("specialRevenue", specialRevenue)
+                .add("optimal", optimal)
+                .toString();
+    }
+
+}
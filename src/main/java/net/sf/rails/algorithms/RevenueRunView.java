@@ -0,0 +1,56 @@
+package net.sf.rails.algorithms;
+
+/**
+ * RevenueRunView gives read access to the current run of the revenue calculator.
+ * It reads the data of the calculator directly, thus no objects are created during the optimization.
+ *
+ * All ids are the ids of the revenue calculator:
+ * Vertex ids follow the {@link NetworkVertex.ValueOrder}, train ids the train list of the RevenueAdapter.
+ * The run of a train starts with its base vertex. If the train runs in both directions,
+ * the base vertex is repeated at the start of the bottom part (same as {@link RevenueTrainRun}).
+ *
+ * The view is only valid during the call of the dynamic modifier.
+ */
+public interface RevenueRunView {
+
+    /** first train of the current calculation */
+    public int getStartTrain();
+
+    /** last train of the current calculation */
+    public int getFinalTrain();
+
+    public NetworkTrain getTrain(int trainId);
+
+    /** @return number of vertices in the run, zero if the train has no run */
+    public int getRunLength(int trainId);
+
+    public int getRunVertex(int trainId, int position);
+
+    /** @return value of the run including all revenue bonuses */
+    public int getRunValue(int trainId);
+
+    public NetworkVertex getVertex(int vertexId);
+
+    public int getVertexValue(int vertexId, int trainId);
+
+    public boolean isMajor(int vertexId);
+
+    public boolean isMinor(int vertexId);
+
+    /** number of (complex) revenue bonuses */
+    public int getNbBonuses();
+
+    /** number of (complex) revenue bonuses that require the vertex */
+    public int getVertexNbBonuses(int vertexId);
+
+    public int getVertexBonus(int vertexId, int index);
+
+    public int getBonusValue(int bonusId);
+
+    /** @return true if the bonus applies to the train */
+    public boolean isBonusActive(int bonusId, int trainId);
+
+    /** @return true if the run of the train has visited all vertices required for the bonus */
+    public boolean isBonusReached(int bonusId, int trainId);
+
+}
@@ -0,0 +1,297 @@
+package net.sf.rails.algorithms;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import net.sf.rails.game.Phase;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.state.ChangeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * RevenueService coordinates the revenue calculations of one RailsRoot
+ * <p>
+ * Identical requests (same company, phase, additional trains and game state) share one calculation:
+ * Requests during a running calculation join it, requests after its completion get the stored result.
+ * The game state is defined by the last closed ChangeSet, thus the results are kept until
+ * the next action is processed, undone or redone.
+ * <p>
+ * Listeners are informed about the intermediate and final results of the calculation they are registered to.
+ * A calculation is cancelled if all requests have released it before its completion.
+ * Results of earlier game states (e.g. after undo) are retrieved from the revenue cache
+ * without building the graphs again.
+ */
+public final class RevenueService {
+
+    private static final Logger log = LoggerFactory.getLogger(RevenueService.class);
+
+    private final RailsRoot root;
+
+    private final Map<Key, Calculation> calculations = new HashMap<>();
+
+    // last closed change set at the time of the stored calculations
+    private ChangeSet gameState;
+
+    // last revenue adapter of each company, allows reuse of the graphs
+    private final Map<PublicCompany, RevenueAdapter> previousAdapters = new HashMap<>();
+
+    private boolean useParallelSearch;
+
+    // daemon threads, created on first use
+    private ExecutorService executor;
+
+    private static final class Key {
+        private final PublicCompany company;
+        private final Phase phase;
+        private final ImmutableList<String> addedTrains;
+
+        private Key(PublicCompany company, Phase phase, List<String> addedTrains) {
+            this.company = company;
+            this.phase = phase;
+            this.addedTrains = ImmutableList.copyOf(addedTrains);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return company == key.company && phase == key.phase && addedTrains.equals(key.addedTrains);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(company, phase, addedTrains);
+        }
+
+        @Override
+        public String toString() {
+            return company + "/" + phase + (addedTrains.isEmpty() ? "" : "/" + addedTrains);
+        }
+    }
+
+    /**
+     * Revenue calculation shared by all identical requests
+     */
+    public final class Calculation implements RevenueListener {
+        private final Key key;
+        private final RevenueAdapter revenueAdapter;
+        private final CancellationToken cancellation = CancellationToken.create();
+        private final FutureTask<RevenueResult> task;
+
+        // the following fields are guarded by the service
+        private final List<RevenueListener> listeners = new ArrayList<>();
+        private int nbRequests;
+        private boolean hasRevenue;
+        private int revenue;
+        private int specialRevenue;
+        private boolean finalResult;
+
+        private Calculation(Key key, RevenueAdapter revenueAdapter, RevenueCache.Key cacheKey) {
+            this.key = key;
+            this.revenueAdapter = revenueAdapter;
+            this.task = new FutureTask<>(() -> {
+                RevenueManager revenueManager = root.getRevenueManager();
+                if (revenueManager != null && revenueManager.hasCalculatorModifier()) {
+                    revenueAdapter.setSpecialRevenue(revenueManager.revenueFromDynamicCalculator(revenueAdapter));
+                }
+                RevenueResult result = revenueAdapter.calculateRevenue(null, cancellation);
+                root.getRevenueCache().put(cacheKey, revenueAdapter, result);
+                return result;
+            });
+            revenueAdapter.addRevenueListener(this);
+        }
+
+        // completed calculation retrieved from the revenue cache
+        private Calculation(Key key, RevenueCache.Result cached) {
+            this.key = key;
+            this.revenueAdapter = cached.getRevenueAdapter();
+            this.task = new FutureTask<>(cached::getRevenueResult);
+            task.run();
+            RevenueResult result = cached.getRevenueResult();
+            this.hasRevenue = true;
+            this.revenue = result.getValue();
+            this.specialRevenue = result.getSpecialRevenue();
+            this.finalResult = true;
+        }
+
+        /**
+         * @return the revenue adapter of the calculation, e.g. to display the optimal run after completion
+         */
+        public RevenueAdapter getRevenueAdapter() {
+            return revenueAdapter;
+        }
+
+        public boolean isDone() {
+            return task.isDone();
+        }
+
+        /**
+         * Waits for the result of the calculation
+         * @return result of the calculation, not optimal if the calculation was cancelled
+         */
+        public RevenueResult get() throws InterruptedException {
+            try {
+                return task.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Revenue calculation for " + key + " failed", e.getCause());
+            }
+        }
+
+        /**
+         * Releases a request of the calculation, the calculation is cancelled if it is released by all requests
+         * @param listener listener given with the request, can be null
+         */
+        public void release(RevenueListener listener) {
+            synchronized (RevenueService.this) {
+                if (listener != null) {
+                    listeners.remove(listener);
+                }
+                if (--nbRequests == 0 && !task.isDone()) {
+                    cancellation.cancel();
+                    if (calculations.get(key) == this) {
+                        calculations.remove(key);
+                    }
+                    log.debug("RevenueService: cancelled calculation for {}", key);
+                }
+            }
+        }
+
+        /**
+         * Called by the revenue adapter on the event dispatch thread
+         */
+        @Override
+        public void revenueUpdate(int revenue, int specialRevenue, boolean finalResult) {
+            List<RevenueListener> informed;
+            synchronized (RevenueService.this) {
+                this.hasRevenue = true;
+                this.revenue = revenue;
+                this.specialRevenue = specialRevenue;
+                this.finalResult = finalResult;
+                informed = new ArrayList<>(listeners);
+            }
+            for (RevenueListener listener : informed) {
+                listener.revenueUpdate(revenue, specialRevenue, finalResult);
+            }
+        }
+
+        // a listener joining a calculation receives the latest result
+        private void addListener(final RevenueListener listener) {
+            listeners.add(listener);
+            if (!hasRevenue) return;
+            final int revenue = this.revenue;
+            final int specialRevenue = this.specialRevenue;
+            final boolean finalResult = this.finalResult;
+            EventQueue.invokeLater(() -> {
+                synchronized (RevenueService.this) {
+                    if (!listeners.contains(listener)) return;
+                }
+                listener.revenueUpdate(revenue, specialRevenue, finalResult);
+            });
+        }
+    }
+
+    private RevenueService(RailsRoot root) {
+        this.root = root;
+    }
+
+    public static RevenueService create(RailsRoot root) {
+        return new RevenueService(root);
+    }
+
+    /**
+     * Activates the parallel search for the following calculations
+     */
+    public synchronized void setParallelSearch(boolean useParallelSearch) {
+        this.useParallelSearch = useParallelSearch;
+    }
+
+    /**
+     * Requests the revenue calculation for the company, a running or completed identical calculation is shared.
+     * Each request has to be released by {@link Calculation#release(RevenueListener)}.
+     * @param addedTrains trains added to the trains of the company (see {@link RevenueAdapter#addTrainByString(String)})
+     * @param listener informed about the results of the calculation, can be null
+     */
+    public synchronized Calculation request(PublicCompany company, Phase phase, List<String> addedTrains,
+            RevenueListener listener) {
+        ChangeSet currentState = root.getStateManager().getChangeStack().getClosedChangeSet();
+        if (currentState != gameState) {
+            // running calculations continue for their requests, but are not shared anymore
+            calculations.clear();
+            gameState = currentState;
+        }
+
+        Key key = new Key(company, phase, addedTrains);
+        Calculation calculation = calculations.get(key);
+        if (calculation == null) {
+            calculation = createCalculation(key);
+            calculations.put(key, calculation);
+        } else {
+            log.debug("RevenueService: shared calculation for {}", key);
+        }
+        calculation.nbRequests++;
+        if (listener != null) {
+            calculation.addListener(listener);
+        }
+        return calculation;
+    }
+
+    /**
+     * Calculates the revenue of the company, a running or completed identical calculation is shared.
+     * @return completed calculation
+     */
+    public Calculation calculate(PublicCompany company, Phase phase, List<String> addedTrains)
+            throws InterruptedException {
+        Calculation calculation = request(company, phase, addedTrains, null);
+        try {
+            calculation.get();
+        } finally {
+            calculation.release(null);
+        }
+        return calculation;
+    }
+
+    private Calculation createCalculation(Key key) {
+        // a cached result does not require to build the graphs
+        RevenueCache.Key cacheKey = RevenueAdapter.createCacheKey(root, key.company, key.phase, key.addedTrains);
+        RevenueCache.Result cached = RevenueAdapter.retrieveFromCache(root, cacheKey);
+        if (cached != null) {
+            log.debug("RevenueService: retrieved result for {} from the revenue cache", key);
+            return new Calculation(key, cached);
+        }
+
+        RevenueAdapter revenueAdapter = RevenueAdapter.createRevenueAdapter(root, key.company, key.phase,
+                previousAdapters.get(key.company));
+        previousAdapters.put(key.company, revenueAdapter);
+        for (String addTrain : key.addedTrains) {
+            revenueAdapter.addTrainByString(addTrain);
+        }
+        revenueAdapter.initRevenueCalculator(true);
+        revenueAdapter.setParallelSearch(useParallelSearch);
+
+        Calculation calculation = new Calculation(key, revenueAdapter, cacheKey);
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "RevenueService");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        executor.execute(calculation.task);
+        log.debug("RevenueService: started calculation for {}", key);
+        return calculation;
+    }
+
+}
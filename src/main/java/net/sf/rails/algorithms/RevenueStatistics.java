@@ -0,0 +1,216 @@
+package net.sf.rails.algorithms;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * RevenueStatistics stores the size and the effort of one revenue calculation.
+ * The search counts include the prediction runs.
+ * For results retrieved from the revenue cache all search counts are zero.
+ */
+public final class RevenueStatistics {
+
+    public enum Variant {
+        SIMPLE,
+        MULTI,
+        MULTI_HEX
+    }
+
+    private final String companyId;
+    private final String phaseId;
+    private final String trains;
+    private final Variant variant;
+
+    // graph sizes
+    private final int nbVertexes;
+    private final int nbEdges;
+    private final int maxNeighbors;
+    private final int nbBonuses;
+
+    // search effort
+    private final int nbEvaluations;
+    private final int nbPredictions;
+    private final int nbPrunes;
+    private final int nbEdgesTravelled;
+    private final long wallTime; // in nanoseconds
+    private final long predictionTime; // in nanoseconds
+
+    // result
+    private final int value;
+    private final boolean optimal;
+    private final boolean cached;
+    private final boolean parallel;
+
+    RevenueStatistics(RevenueCalculator rc, String companyId, String phaseId, String trains,
+            int value, boolean parallel, long wallTime, long predictionTime) {
+        this.companyId = companyId;
+        this.phaseId = phaseId;
+        this.trains = trains;
+        this.variant = rc.getVariant();
+        this.nbVertexes = rc.nbVertexes;
+        this.nbEdges = rc.nbEdges;
+        this.maxNeighbors = rc.maxNeighbors;
+        this.nbBonuses = rc.nbBonuses;
+        this.nbEvaluations = rc.nbEvaluations;
+        this.nbPredictions = rc.nbPredictions;
+        this.nbPrunes = rc.nbPrunes;
+        this.nbEdgesTravelled = rc.nbEdgesTravelled;
+        this.wallTime = wallTime;
+        this.predictionTime = predictionTime;
+        this.value = value;
+        this.optimal = !rc.isAborted();
+        this.cached = false;
+        this.parallel = parallel;
+    }
+
+    private RevenueStatistics(RevenueStatistics calculated, long wallTime) {
+        this.companyId = calculated.companyId;
+        this.phaseId = calculated.phaseId;
+        this.trains = calculated.trains;
+        this.variant = calculated.variant;
+        this.nbVertexes = calculated.nbVertexes;
+        this.nbEdges = calculated.nbEdges;
+        this.maxNeighbors = calculated.maxNeighbors;
+        this.nbBonuses = calculated.nbBonuses;
+        this.nbEvaluations = 0;
+        this.nbPredictions = 0;
+        this.nbPrunes = 0;
+        this.nbEdgesTravelled = 0;
+        this.wallTime = wallTime;
+        this.predictionTime = 0;
+        this.value = calculated.value;
+        this.optimal = calculated.optimal;
+        this.cached = true;
+        this.parallel = false;
+    }
+
+    /**
+     * @param wallTime time of the retrieval from the revenue cache in nanoseconds
+     * @return statistics of the retrieval of this calculation from the revenue cache
+     */
+    RevenueStatistics retrieved(long wallTime) {
+        return new RevenueStatistics(this, wallTime);
+    }
+
+    public String getCompanyId() {
+        return companyId;
+    }
+
+    public String getPhaseId() {
+        return phaseId;
+    }
+
+    /**
+     * @return names of the trains used, separated by commas
+     */
+    public String getTrains() {
+        return trains;
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    public int getNbVertexes() {
+        return nbVertexes;
+    }
+
+    public int getNbEdges() {
+        return nbEdges;
+    }
+
+    public int getMaxNeighbors() {
+        return maxNeighbors;
+    }
+
+    public int getNbBonuses() {
+        return nbBonuses;
+    }
+
+    public int getNbEvaluations() {
+        return nbEvaluations;
+    }
+
+    public int getNbPredictions() {
+        return nbPredictions;
+    }
+
+    /**
+     * @return number of predictions that terminated the search of a run
+     */
+    public int getNbPrunes() {
+        return nbPrunes;
+    }
+
+    /**
+     * @return share of predictions that terminated the search of a run
+     */
+    public double getPruneRatio() {
+        if (nbPredictions == 0) return 0;
+        return (double) nbPrunes / nbPredictions;
+    }
+
+    public int getNbEdgesTravelled() {
+        return nbEdgesTravelled;
+    }
+
+    /**
+     * @return duration of the calculation (including predictions) in nanoseconds
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * @return duration of the prediction runs in nanoseconds
+     */
+    public long getPredictionTime() {
+        return predictionTime;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * @return true if the search was completed
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /**
+     * @return true if the result was retrieved from the revenue cache
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("company", companyId)
+                .add("phase", phaseId)
+                .add("trains", trains)
+                .add("variant", variant)
+                .add("nbVertexes", nbVertexes)
+                .add("nbEdges", nbEdges)
+                .add("maxNeighbors", maxNeighbors)
+                .add("nbBonuses", nbBonuses)
+                .add("nbEvaluations", nbEvaluations)
+                .add("nbPredictions", nbPredictions)
+                .add("nbPrunes", nbPrunes)
+                .add("nbEdgesTravelled", nbEdgesTravelled)
+                .add("wallTimeMs", wallTime / 1000000)
+                .add("predictionTimeMs", predictionTime / 1000000)
+                .add("value", value)
+                .add("optimal", optimal)
+                .add("cached", cached)
+                .add("parallel", parallel)
+                .toString();
+    }
+
+}
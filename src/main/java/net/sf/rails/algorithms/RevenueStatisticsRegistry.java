@@ -0,0 +1,106 @@
+package net.sf.rails.algorithms;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RevenueStatisticsRegistry collects the statistics of all revenue calculations of one game.
+ * The statistics are aggregated by calculator variant and trains, for each
+ * aggregate the slowest calculation is kept.
+ */
+public final class RevenueStatisticsRegistry {
+
+    private final String gameName;
+
+    private final Map<String, Aggregate> aggregates = new LinkedHashMap<>();
+
+    private int nbCalculations;
+
+    /**
+     * Statistics of all calculations with identical calculator variant and trains
+     */
+    private static final class Aggregate {
+        private final String key;
+        private int count;
+        private int nbCached;
+        private int nbStopped;
+        private long totalWallTime;
+        private long totalEvaluations;
+        private RevenueStatistics slowest;
+
+        private Aggregate(String key) {
+            this.key = key;
+        }
+
+        private void add(RevenueStatistics statistics) {
+            count++;
+            if (statistics.isCached()) nbCached++;
+            if (!statistics.isOptimal()) nbStopped++;
+            totalWallTime += statistics.getWallTime();
+            totalEvaluations += statistics.getNbEvaluations();
+            if (slowest == null || statistics.getWallTime() > slowest.getWallTime()) {
+                slowest = statistics;
+            }
+        }
+    }
+
+    private RevenueStatisticsRegistry(String gameName) {
+        this.gameName = gameName;
+    }
+
+    public static RevenueStatisticsRegistry create(String gameName) {
+        return new RevenueStatisticsRegistry(gameName);
+    }
+
+    public synchronized void add(RevenueStatistics statistics) {
+        String key = statistics.getVariant() + " [" + statistics.getTrains() + "]";
+        Aggregate aggregate = aggregates.get(key);
+        if (aggregate == null) {
+            aggregate = new Aggregate(key);
+            aggregates.put(key, aggregate);
+        }
+        aggregate.add(statistics);
+        nbCalculations++;
+    }
+
+    public synchronized int getNbCalculations() {
+        return nbCalculations;
+    }
+
+    public synchronized void clear() {
+        aggregates.clear();
+        nbCalculations = 0;
+    }
+
+    /**
+     * @return one line per calculator variant and trains, ordered by total duration (descending)
+     */
+    public synchronized String dump() {
+        List<Aggregate> sorted = new ArrayList<>(aggregates.values());
+        sorted.sort(Comparator.comparingLong((Aggregate a) -> a.totalWallTime).reversed());
+
+        StringBuilder dump = new StringBuilder();
+        dump.append("RevenueStatistics for ").append(gameName)
+                .append(": ").append(nbCalculations).append(" calculations\n");
+        for (Aggregate aggregate : sorted) {
+            dump.append(aggregate.key)
+                    .append(": count = ").append(aggregate.count)
+                    .append(", cached = ").append(aggregate.nbCached)
+                    .append(", stopped = ").append(aggregate.nbStopped)
+                    .append(", totalMs = ").append(aggregate.totalWallTime / 1000000)
+                    .append(", evaluations = ").append(aggregate.totalEvaluations)
+                    .append(", slowest = ").append(aggregate.slowest)
+                    .append("\n");
+        }
+        return dump.toString();
+    }
+
+    @Override
+    public String toString() {
+        return dump();
+    }
+
+}
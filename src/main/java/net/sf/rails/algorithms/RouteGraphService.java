@@ -0,0 +1,270 @@
+package net.sf.rails.algorithms;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.rails.game.HexSidesSet;
+import net.sf.rails.game.MapHex;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.Station;
+import net.sf.rails.game.Stop;
+import net.sf.rails.game.state.ImmediateObserver;
+import net.sf.rails.game.state.Observable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+
+/**
+ * RouteGraphService provides the route graph data for tile and token lay allowances
+ * <p>
+ * For each company the route graph (including the HQ, not running) is evaluated once
+ * and stored as an immutable snapshot. The snapshots are kept until a change of the map
+ * (tiles, rotations, tokens and other hex states) or the phase is closed, undone or redone
+ * on the ChangeStack.
+ * <p>
+ * Snapshots can be prepared in the background (e.g. for the next operating company).
+ * A background result is only stored if no change occurred during its evaluation.
+ */
+public final class RouteGraphService {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteGraphService.class);
+
+    private final RailsRoot root;
+
+    private final Map<PublicCompany, Snapshot> snapshots = new HashMap<>();
+
+    // background evaluations, valid for the current version only
+    private final Map<PublicCompany, FutureTask<Snapshot>> pending = new HashMap<>();
+
+    // incremented by each invalidation
+    private int version;
+
+    // single daemon thread, created on first use and terminated if idle
+    private ThreadPoolExecutor executor;
+
+    private static final long IDLE_SECONDS = 60;
+
+    /**
+     * Route graph data of one company
+     */
+    public static final class Snapshot {
+        private final PublicCompany company;
+        private final String rights;
+        private final ImmutableMap<MapHex, HexSidesSet> reachableSides;
+        private final ImmutableMultimap<MapHex, Station> passableStations;
+        private final ImmutableMultimap<MapHex, Stop> tokenableStops;
+        private final ImmutableSet<NetworkVertex> vertices;
+
+        private Snapshot(PublicCompany company, NetworkGraph routeGraph) {
+            this.company = company;
+            this.rights = rightsOf(company);
+            this.reachableSides = routeGraph.getReachableSides();
+            this.passableStations = ImmutableMultimap.copyOf(routeGraph.getPassableStations());
+            this.tokenableStops = ImmutableMultimap.copyOf(routeGraph.getTokenableStops(company));
+            this.vertices = ImmutableSet.copyOf(routeGraph.getGraph().vertexSet());
+        }
+
+        public PublicCompany getCompany() {
+            return company;
+        }
+
+        /**
+         * @see NetworkGraph#getReachableSides()
+         */
+        public ImmutableMap<MapHex, HexSidesSet> getReachableSides() {
+            return reachableSides;
+        }
+
+        /**
+         * @see NetworkGraph#getPassableStations()
+         */
+        public Multimap<MapHex, Station> getPassableStations() {
+            return passableStations;
+        }
+
+        /**
+         * @see NetworkGraph#getTokenableStops(PublicCompany)
+         */
+        public Multimap<MapHex, Stop> getTokenableStops() {
+            return tokenableStops;
+        }
+
+        /**
+         * @return vertices of the route graph
+         */
+        public ImmutableSet<NetworkVertex> getVertices() {
+            return vertices;
+        }
+    }
+
+    /**
+     * Invalidates the snapshots after changes of the observable
+     * (immediately, as the snapshots are used by the game logic)
+     */
+    private final class ChangeObserver implements ImmediateObserver {
+        private final Observable observable;
+
+        private ChangeObserver(Observable observable) {
+            this.observable = observable;
+        }
+
+        @Override
+        public void update(String text) {
+            invalidate();
+        }
+
+        @Override
+        public Observable getObservable() {
+            return observable;
+        }
+    }
+
+    private RouteGraphService(RailsRoot root) {
+        this.root = root;
+    }
+
+    public static RouteGraphService create(RailsRoot root) {
+        RouteGraphService service = new RouteGraphService(root);
+        for (MapHex hex : root.getMapManager().getHexes()) {
+            hex.addObserver(service.new ChangeObserver(hex));
+        }
+        Observable phase = root.getPhaseManager().getCurrentPhaseModel();
+        phase.addObserver(service.new ChangeObserver(phase));
+        return service;
+    }
+
+    /**
+     * @return the route graph data of the company, evaluated if not available
+     */
+    public Snapshot getSnapshot(PublicCompany company) {
+        FutureTask<Snapshot> task;
+        synchronized (this) {
+            Snapshot snapshot = getValidSnapshot(company);
+            if (snapshot != null) {
+                return snapshot;
+            }
+            task = pending.get(company);
+            if (task == null) {
+                snapshot = createSnapshot(company);
+                snapshots.put(company, snapshot);
+                return snapshot;
+            }
+        }
+        // wait for the background evaluation instead of starting another one
+        try {
+            Snapshot snapshot = task.get();
+            synchronized (this) {
+                if (snapshot == getValidSnapshot(company)) {
+                    return snapshot;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.debug("RouteGraphService: background evaluation for {} failed", company, e);
+        }
+        // the background result is outdated (or failed)
+        synchronized (this) {
+            Snapshot snapshot = getValidSnapshot(company);
+            if (snapshot == null) {
+                snapshot = createSnapshot(company);
+                snapshots.put(company, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Starts the evaluation of the snapshot of the company in the background,
+     * if it is not available yet
+     */
+    public synchronized void prepareSnapshot(final PublicCompany company) {
+        if (getValidSnapshot(company) != null || pending.containsKey(company)) return;
+
+        final int startVersion = version;
+        final FutureTask<Snapshot> task = new FutureTask<>(() -> {
+            Snapshot snapshot = null;
+            try {
+                snapshot = createSnapshot(company);
+            } finally {
+                publish(company, snapshot, startVersion);
+            }
+            return snapshot;
+        });
+        pending.put(company, task);
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "RouteGraphService");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // otherwise each game of the session leaves an idle thread behind
+            executor.allowCoreThreadTimeOut(true);
+        }
+        executor.execute(task);
+        log.debug("RouteGraphService: started background evaluation for {}", company);
+    }
+
+    private synchronized void publish(PublicCompany company, Snapshot snapshot, int startVersion) {
+        if (pending.get(company) != null && startVersion == version) {
+            pending.remove(company);
+            if (snapshot != null) {
+                snapshots.put(company, snapshot);
+                log.debug("RouteGraphService: stored background snapshot for {}", company);
+            }
+        } else {
+            log.debug("RouteGraphService: discarded background snapshot for {}", company);
+        }
+    }
+
+    private Snapshot getValidSnapshot(PublicCompany company) {
+        Snapshot snapshot = snapshots.get(company);
+        // rights of a company are not observed, as the model is created on demand
+        if (snapshot != null && !rightsOf(company).equals(snapshot.rights)) {
+            snapshots.remove(company);
+            return null;
+        }
+        return snapshot;
+    }
+
+    private Snapshot createSnapshot(PublicCompany company) {
+        NetworkGraph mapGraph = NetworkGraph.createMapGraph(root);
+        Snapshot snapshot = new Snapshot(company, NetworkGraph.createRouteGraph(mapGraph, company, true, false));
+        log.debug("RouteGraphService: created snapshot for {}", company);
+        return snapshot;
+    }
+
+    /**
+     * @return version of the map and phase, changes with each invalidation
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    public synchronized void invalidate() {
+        version++;
+        pending.clear();
+        if (!snapshots.isEmpty()) {
+            snapshots.clear();
+            log.debug("RouteGraphService: snapshots invalidated");
+        }
+    }
+
+    static String rightsOf(PublicCompany company) {
+        Observable rights = company.getRightsModel();
+        return (rights == null) ? "" : rights.toText();
+    }
+
+}
@@ -7,7 +7,8 @@ import net.sf.rails.game.financial.PublicCertificate;
 
 public class CertificateManager extends RailsManager {
 
-    protected static Map<String, PublicCertificate> certMap = new HashMap<>();
+    // per game, certificate ids are only unique inside a game
+    private final Map<String, PublicCertificate> certMap = new HashMap<>();
 
     protected CertificateManager(RailsItem parent, String id) {
         super(parent, id);
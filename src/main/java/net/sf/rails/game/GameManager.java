@@ -463,6 +463,8 @@ public class GameManager extends RailsManager implements Configurable, Owner {
 
     public void init() {
         showCompositeORNumber = !"simple".equalsIgnoreCase(Config.get("or.number_format"));
+        getRoot().getStateManager().getChangeStack().setSnapshotInterval(
+                Config.getInt("undo.snapshot.interval", 0));
     }
 
     public void startGame() {
@@ -1144,6 +1146,8 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         // save off the current # of executed actions as it will grow as we execute newly loaded
         int executedActionsCount = executedActions.size();
         PossibleAction executedAction;
+        // observers are updated once after the new actions
+        StateManager.NotificationScope scope = getRoot().getStateManager().suspendNotifications();
         try {
             for (PossibleAction savedAction : savedActions) {
                 if (index < executedActionsCount) {
@@ -1174,6 +1178,8 @@ public class GameManager extends RailsManager implements Configurable, Owner {
             log.error("Reload failed", e);
             DisplayBuffer.add(this, LocalText.getText("LoadFailed", e.getMessage()));
             return false;
+        } finally {
+            scope.close();
         }
 
         setReloading(false);
@@ -5,8 +5,13 @@ import java.util.Iterator;
 
 /**
  * HexSides define a BitSet(6) that define booleans on those sides
+ * <p>
+ * For frequent checks the sides can be encoded as an int mask as well,
+ * with bit i set for the side with track point number i.
  */
 public class HexSidesSet implements Iterable<HexSide> {
+    public static final int ALL_SIDES_MASK = 0x3F;
+
     private final BitSet sides;
     
     private HexSidesSet(BitSet sides) {
@@ -33,6 +38,46 @@ public class HexSidesSet implements Iterable<HexSide> {
         return sidesBuilder.build();
     }
     
+    public static HexSidesSet fromMask(int mask) {
+        return new HexSidesSet(BitSet.valueOf(new long[] {mask & ALL_SIDES_MASK}));
+    }
+
+    /**
+     * Mask equivalent of {@link #rotated(HexSidesSet, HexSide)}
+     */
+    public static int rotatedMask(int mask, HexSide rotation) {
+        return rotateMask(mask, rotation.negative());
+    }
+
+    /**
+     * @return mask with each side rotated by the rotation given
+     */
+    public static int rotateMask(int mask, HexSide rotation) {
+        int r = rotation.getTrackPointNumber();
+        if (r == 0) return mask;
+        return ((mask << r) | (mask >>> (6 - r))) & ALL_SIDES_MASK;
+    }
+
+    /**
+     * Mask equivalent of {@link #getNext(HexSide)}
+     */
+    public static HexSide getNext(int mask, HexSide current) {
+        int c = current.getTrackPointNumber();
+        for (int i = 0; i < 6; i++) {
+            int side = (c + i) % 6;
+            if ((mask & (1 << side)) != 0) return HexSide.get(side);
+        }
+        return null;
+    }
+
+    public int toMask() {
+        int mask = 0;
+        for (int i = sides.nextSetBit(0); i >= 0; i = sides.nextSetBit(i + 1)) {
+            mask |= 1 << i;
+        }
+        return mask;
+    }
+
     public BitSet getSides() {
         return sides;
     }
@@ -1,19 +1,17 @@
 package net.sf.rails.game;
 
 import java.util.*;
-import java.util.Map.Entry;
 
 import net.sf.rails.common.Config;
 import net.sf.rails.common.parser.Configurable;
 import net.sf.rails.common.parser.ConfigurationException;
 import net.sf.rails.common.parser.Tag;
 
-import com.google.common.collect.HashBasedTable;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.ImmutableTable;
-import com.google.common.collect.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,8 +35,13 @@ public class MapManager extends RailsManager implements Configurable {
     // Stop property defaults per stop type
     private EnumMap<Stop.Type, Access> defaultAccessTypes = new EnumMap<>(Stop.Type.class);
     
-    // if required: distance table
-    private Table<MapHex, MapHex, Integer> hexDistances;
+    // hex ordinals and neighbours by ordinal, used for the distance table
+    private ImmutableMap<MapHex, Integer> hexOrdinals;
+    private MapHex[] hexesByOrdinal;
+    private int[][] hexNeighbours;
+
+    // if required: distance table, rows are calculated on first use
+    private int[][] hexDistances;
 
     // Optional map image (SVG file)
     // FIXME: Move to UI class
@@ -130,6 +133,7 @@ public class MapManager extends RailsManager implements Configurable {
             }
         }
         hexTable = hexTableBuilder.build();
+        initHexOrdinals();
 
         for (PublicCompany company : root.getCompanyManager().getAllPublicCompanies()) {
             List<MapHex> homeHexes = company.getHomeHexes();
@@ -294,32 +298,73 @@ public class MapManager extends RailsManager implements Configurable {
         return locationBuilder.build();
     }
 
+    private void initHexOrdinals() {
+        ImmutableMap.Builder<MapHex, Integer> ordinalBuilder = ImmutableMap.builder();
+        hexesByOrdinal = hexes.values().toArray(new MapHex[0]);
+        for (int i = 0; i < hexesByOrdinal.length; i++) {
+            ordinalBuilder.put(hexesByOrdinal[i], i);
+        }
+        hexOrdinals = ordinalBuilder.build();
+
+        hexNeighbours = new int[hexesByOrdinal.length][];
+        for (int i = 0; i < hexesByOrdinal.length; i++) {
+            Collection<MapHex> neighbours = hexTable.row(hexesByOrdinal[i]).values();
+            hexNeighbours[i] = new int[neighbours.size()];
+            int j = 0;
+            for (MapHex neighbour : neighbours) {
+                hexNeighbours[i][j++] = hexOrdinals.get(neighbour);
+            }
+        }
+    }
+
     /**
      * Calculate the distance between two hexes as in 1835,
      * i.e. as "the crow without a passport flies".
+     * @return number of hex steps between both hexes
+     * @throws IllegalArgumentException if hex2 cannot be reached from hex1
      */
     public int getHexDistance (MapHex hex1, MapHex hex2) {
+        int distance = getHexDistances(hex1)[hexOrdinals.get(hex2)];
+        Preconditions.checkArgument(distance >= 0, "Hex %s cannot be reached from hex %s", hex2, hex1);
+        return distance;
+    }
+
+    /**
+     * @return distances from the hex to all hexes, indexed by hex ordinal (-1 if not reachable)
+     */
+    private int[] getHexDistances (MapHex initHex) {
         if (hexDistances == null) {
-            hexDistances = HashBasedTable.create();
+            hexDistances = new int[hexesByOrdinal.length][];
         }
 
-        if (!hexDistances.contains(hex1, hex2)) {
-            calculateHexDistances(hex1, hex1, 0);
+        int init = hexOrdinals.get(initHex);
+        if (hexDistances[init] == null) {
+            hexDistances[init] = calculateHexDistances(init);
         }
-        return hexDistances.get(hex1, hex2);
+        return hexDistances[init];
     }
 
-    private void calculateHexDistances (MapHex initHex, MapHex currentHex, int depth) {
-        hexDistances.put(initHex, currentHex, depth);
-        
-        // check for next hexes
-        depth ++;
-        for (MapHex nextHex:hexTable.row(currentHex).values()) {
-            if (!hexDistances.contains(initHex, nextHex) ||
-                    depth < hexDistances.get(initHex, nextHex)) {
-                calculateHexDistances(initHex, nextHex, depth);
+    /**
+     * Breadth-first search from the hex given over all valid neighbours
+     */
+    private int[] calculateHexDistances (int init) {
+        int[] distances = new int[hexesByOrdinal.length];
+        Arrays.fill(distances, -1);
+        int[] queue = new int[hexesByOrdinal.length];
+        int head = 0, tail = 0;
+
+        distances[init] = 0;
+        queue[tail++] = init;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int next : hexNeighbours[current]) {
+                if (distances[next] == -1) {
+                    distances[next] = distances[current] + 1;
+                    queue[tail++] = next;
+                }
             }
         }
+        return distances;
     }
 
 
@@ -331,24 +376,17 @@ public class MapManager extends RailsManager implements Configurable {
      * @return Sorted integer list containing all occurring distances only once.
      */
     public SortedSet<Integer> getCityDistances (MapHex initHex) {
-        
-        if (hexDistances == null) {
-            hexDistances = HashBasedTable.create();
-        }
+        int[] distances = getHexDistances(initHex);
 
-        if (!hexDistances.containsRow(initHex)) {
-            calculateHexDistances(initHex, initHex, 0);
-        }
-        
-        ImmutableSortedSet.Builder<Integer> distances = 
+        ImmutableSortedSet.Builder<Integer> cityDistances =
                 ImmutableSortedSet.naturalOrder();
-        
-        for (Entry<MapHex, Integer> otherHex:hexDistances.row(initHex).entrySet()) {
-            if (otherHex.getKey().getCurrentTile().hasStations()) {
-                distances.add(otherHex.getValue());
+
+        for (int i = 0; i < distances.length; i++) {
+            if (distances[i] >= 0 && hexesByOrdinal[i].getCurrentTile().hasStations()) {
+                cityDistances.add(distances[i]);
             }
         }
-        return distances.build();
+        return cityDistances.build();
     }
 
     public String getMapImageFilepath() {
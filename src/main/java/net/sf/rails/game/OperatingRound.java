@@ -8,7 +8,7 @@ import net.sf.rails.game.round.RoundFacade;
 import net.sf.rails.game.special.*;
 import net.sf.rails.game.state.Currency;
 import net.sf.rails.game.state.Observable;
-import net.sf.rails.game.state.Observer;
+import net.sf.rails.game.state.ImmediateObserver;
 import net.sf.rails.game.state.*;
 import net.sf.rails.util.SequenceUtil;
 import org.slf4j.Logger;
@@ -24,7 +24,7 @@ import java.util.*;
  * each new Operating Round. At the end of a round, the current instance should
  * be discarded.
  */
-public class OperatingRound extends Round implements Observer {
+public class OperatingRound extends Round implements ImmediateObserver {
 
     private static final Logger log = LoggerFactory.getLogger(OperatingRound.class);
 
@@ -3,7 +3,12 @@ package net.sf.rails.game;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.sf.rails.algorithms.NetworkMapGraph;
+import net.sf.rails.algorithms.RevenueCache;
 import net.sf.rails.algorithms.RevenueManager;
+import net.sf.rails.algorithms.RevenueService;
+import net.sf.rails.algorithms.RevenueStatisticsRegistry;
+import net.sf.rails.algorithms.RouteGraphService;
 import net.sf.rails.common.Config;
 import net.sf.rails.common.DisplayBuffer;
 import net.sf.rails.common.GameData;
@@ -50,6 +55,21 @@ public class RailsRoot extends Root implements RailsItem {
     // Other Managers
     private ReportManager reportManager;
 
+    // track structure of the map, created on first use
+    private NetworkMapGraph networkMapGraph;
+
+    // statistics of all revenue calculations, created on first use
+    private RevenueStatisticsRegistry revenueStatisticsRegistry;
+
+    // route graphs for tile and token lays, created on first use
+    private RouteGraphService routeGraphService;
+
+    // shared revenue calculations of the current game state, created on first use
+    private RevenueService revenueService;
+
+    // completed revenue calculations, created on first use
+    private RevenueCache revenueCache;
+
     private RailsRoot(GameData gameData) {
         super();
 
@@ -216,6 +236,41 @@ public class RailsRoot extends Root implements RailsItem {
         return revenueManager;
     }
 
+    public synchronized NetworkMapGraph getNetworkMapGraph() {
+        if (networkMapGraph == null) {
+            networkMapGraph = NetworkMapGraph.create(this);
+        }
+        return networkMapGraph;
+    }
+
+    public synchronized RevenueStatisticsRegistry getRevenueStatisticsRegistry() {
+        if (revenueStatisticsRegistry == null) {
+            revenueStatisticsRegistry = RevenueStatisticsRegistry.create(getGameName());
+        }
+        return revenueStatisticsRegistry;
+    }
+
+    public synchronized RouteGraphService getRouteGraphService() {
+        if (routeGraphService == null) {
+            routeGraphService = RouteGraphService.create(this);
+        }
+        return routeGraphService;
+    }
+
+    public synchronized RevenueService getRevenueService() {
+        if (revenueService == null) {
+            revenueService = RevenueService.create(this);
+        }
+        return revenueService;
+    }
+
+    public synchronized RevenueCache getRevenueCache() {
+        if (revenueCache == null) {
+            revenueCache = RevenueCache.create();
+        }
+        return revenueCache;
+    }
+
     public Bank getBank() {
         return bank;
     }
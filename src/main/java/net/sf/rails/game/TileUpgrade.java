@@ -16,6 +16,11 @@ public class TileUpgrade implements Upgrade {
 
     private static final Logger log = LoggerFactory.getLogger(TileUpgrade.class);
 
+    /**
+     * Value of the connected sides mask if no connectivity is required
+     */
+    public static final int NO_CONNECTION_REQUIRED = -1;
+
     /**
      * Rotation defines the following details for a tile upgrade
      */
@@ -137,6 +142,15 @@ public class TileUpgrade implements Upgrade {
      */
     private Map<HexSide, Rotation> rotations;
     private HexSidesSet rotationSides;
+
+    /**
+     * Rotation tables indexed by the track point number of the rotation:
+     * sides are encoded as 6-bit masks, stations of the base tile by their number
+     */
+    private int rotationMask;
+    private final int[] connectedSidesMasks = new int[6];
+    private final int[] newTrackSidesMasks = new int[6];
+    private final int[] newTrackStationsMasks = new int[6];
     private boolean relayBaseTokens;
 
     /**
@@ -250,6 +264,34 @@ public class TileUpgrade implements Upgrade {
         }
         rotationSides = sideBuilder.build();
         rotations = rotationBuilder.build();
+        initRotationTables();
+    }
+
+    private void initRotationTables() {
+        rotationMask = rotationSides.toMask();
+        for (HexSide side : rotationSides) {
+            Rotation rotation = rotations.get(side);
+            int r = side.getTrackPointNumber();
+            connectedSidesMasks[r] = rotation.getConnectedSides().toMask();
+            newTrackSidesMasks[r] = rotation.getSidesWithNewTrack().toMask();
+            int stationsMask = 0;
+            if (rotation.getStationMapping() != null) {
+                for (Map.Entry<Station, Station> mapping : rotation.getStationMapping().entrySet()) {
+                    if (mapping.getValue() != null
+                            && rotation.getStationsWithNewTrack().contains(mapping.getValue())) {
+                        stationsMask |= stationMask(mapping.getKey());
+                    }
+                }
+            }
+            newTrackStationsMasks[r] = stationsMask;
+        }
+    }
+
+    /**
+     * @return mask of a station of the base tile, as used for the station connectivity
+     */
+    public static int stationMask(Station station) {
+        return 1 << station.getNumber();
     }
 
     private void parsePhases(RailsRoot root) throws ConfigurationException {
@@ -298,34 +340,6 @@ public class TileUpgrade implements Upgrade {
     }
 
 
-    private boolean checkInvalidSides(Rotation rotation, HexSidesSet impassable) {
-        log.trace("Check rotation {} against  impassable{}", rotation, impassable);
-        if (impassable == null) return false; // null implies that no station exists
-        return (rotation.getConnectedSides().intersects(impassable));
-    }
-
-    private boolean checkSideConnectivity(Rotation rotation, HexSidesSet connected, boolean restrictive) {
-        log.trace("Check rotation {} against {}", rotation, connected);
-        if (connected == null) return true; // null implies no connectivity required
-        if (restrictive && !rotation.getSidesWithNewTrack().isEmpty()) {
-            return rotation.getSidesWithNewTrack().intersects(connected);
-        } else {
-            return (rotation.getConnectedSides().intersects(connected));
-        }
-    }
-
-    private boolean checkStationConnectivity(Rotation rotation, Collection<Station> stations) {
-        if (rotation.getStationMapping() == null) return false;
-        log.trace("Check Stations {}, rotation = {}", stations, rotation);
-        for (Station station : stations) {
-            Station targetStation = rotation.getStationMapping().get(station);
-            if (targetStation != null && rotation.getStationsWithNewTrack().contains(targetStation)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     public HexSidesSet getRotationSet() {
         return rotationSides;
     }
@@ -336,18 +350,53 @@ public class TileUpgrade implements Upgrade {
 
     public HexSidesSet getAllowedRotations(HexSidesSet connected, HexSidesSet impassable, HexSide baseRotation,
                                            Collection<Station> stations, boolean restrictive) {
+        int stationsMask = 0;
+        if (stations != null) {
+            for (Station station : stations) {
+                stationsMask |= stationMask(station);
+            }
+        }
+        int allowed = getAllowedRotations(connected == null ? NO_CONNECTION_REQUIRED : connected.toMask(),
+                impassable == null ? 0 : impassable.toMask(), baseRotation, stationsMask, restrictive);
+        return HexSidesSet.fromMask(allowed);
+    }
 
-        HexSidesSet.Builder builder = HexSidesSet.builder();
-        for (HexSide side : rotationSides) {
-            Rotation rotation = rotations.get(side);
-            if (checkInvalidSides(rotation, impassable)) continue;
-            if (checkSideConnectivity(rotation, connected, restrictive) ||
-                    checkStationConnectivity(rotation, stations)) {
-                builder.set(side.rotate(baseRotation));
+    /**
+     * Allowed rotations from the rotation tables
+     *
+     * @param connected mask of the connected sides (relative to the base tile),
+     *                  or NO_CONNECTION_REQUIRED
+     * @param impassable mask of the impassable sides (relative to the base tile)
+     * @param baseRotation rotation of the base tile
+     * @param stations mask of the connected stations of the base tile, see {@link #stationMask(Station)}
+     * @return mask of the allowed rotations (of the target tile)
+     */
+    public int getAllowedRotations(int connected, int impassable, HexSide baseRotation,
+                                   int stations, boolean restrictive) {
+        int allowed = 0;
+        for (int r = 0; r < 6; r++) {
+            if ((rotationMask & (1 << r)) == 0) continue;
+            // check invalid sides
+            if ((connectedSidesMasks[r] & impassable) != 0) continue;
+            // check side connectivity
+            boolean valid;
+            if (connected == NO_CONNECTION_REQUIRED) {
+                valid = true;
+            } else if (restrictive && newTrackSidesMasks[r] != 0) {
+                valid = (newTrackSidesMasks[r] & connected) != 0;
+            } else {
+                valid = (connectedSidesMasks[r] & connected) != 0;
             }
+            // check station connectivity
+            if (valid || (newTrackStationsMasks[r] & stations) != 0) {
+                allowed |= 1 << r;
+            }
+        }
+        allowed = HexSidesSet.rotateMask(allowed, baseRotation);
+        if (log.isTraceEnabled()) {
+            log.trace("allowed = {} hexSides = {} impassable = {} rotationSides = {}",
+                    allowed, connected, impassable, rotationSides);
         }
-        HexSidesSet allowed = builder.build();
-        log.trace("allowed = {}hexSides = {}impassable ={} rotationSides = {}", allowed, connected, impassable, rotationSides);
         return allowed;
     }
 
@@ -3,9 +3,12 @@ package net.sf.rails.game.specific._1837;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.sf.rails.algorithms.NetworkTrain;
+import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueCalculatorModifier;
-import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueDynamicViewModifier;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.game.Access;
 import net.sf.rails.game.Phase;
@@ -21,10 +24,13 @@ import org.slf4j.LoggerFactory;
  * - passenger trains <b>may not</b> run from or to any mine.
  */
 public class RunToCoalMineModifier
-        implements RevenueDynamicModifier, RevenueCalculatorModifier {
+        implements RevenueDynamicViewModifier, RevenueCalculatorModifier {
 
     private static final Logger log = LoggerFactory.getLogger(RunToCoalMineModifier.class);
 
+    // result of checkRun for runs that are not allowed
+    private static final int INVALID_RUN = -1;
+
     private int directRevenueFromMines;
     //private boolean evaluateMine;
 
@@ -41,6 +47,12 @@ public class RunToCoalMineModifier
         return 0;
     }
 
+    @Override
+    public int predictionValue(RevenueRunView runView) {
+        // cannot be predicted
+        return 0;
+    }
+
     private List<RevenueTrainRun> identifyInvalidRuns(List<RevenueTrainRun> runs) {
 
         //if (evaluateMine) directRevenueFromMines = 0; // Prevent later overwriting by 0
@@ -58,59 +70,98 @@ public class RunToCoalMineModifier
                 log.debug ("Invalid run");
                 continue;
             }
-            String trainCategory = run.getTrain().getRailsTrain().getCategory();
-            if (!Util.hasValue(trainCategory)) {
-                log.debug("No category");
-                continue;
-            }
-
-            // check if runs do not start or end at a coal mine
-            // for a train category that is not allowed to do so
-            // (this part of the modifier is not specific for 1837)
-            Stop firstStop = run.getFirstVertex().getStop();
-            Station firstStation = firstStop.getRelatedStation();
-            boolean firstStationIsMine = firstStation.getType() == Stop.Type.MINE;
-            Access firstStationAccess = firstStation.getAccess();
-            Stop lastStop = run.getLastVertex().getStop();
-            Station lastStation = lastStop.getRelatedStation();
-            boolean lastStationIsMine = lastStation.getType() == Stop.Type.MINE;
-            Access lastStationAccess = lastStation.getAccess();
-
-            if (firstStationIsMine && !(firstStationAccess == null
-                        || firstStationAccess.getRunToTrainCategories().contains(trainCategory))) {
+            int mineRevenue = checkRun(run.getTrain(), run.getFirstVertex(), run.getLastVertex());
+            if (mineRevenue == INVALID_RUN) {
                 invalidRuns.add(run);
-                log.debug("Invalid first stop: access={} or wrong category");
-                continue;
+            } else {
+                totalMineRevenue += mineRevenue;
             }
-            if (lastStationIsMine && !(lastStationAccess == null
-                    || lastStationAccess.getRunToTrainCategories().contains(trainCategory))) {
-                invalidRuns.add(run);
-                log.debug("Invalid last stop: access={} or wrong category");
-                continue;
+        }
+        //evaluateMine = false;
+        // Maximize the mine revenue (not sure if this is optimal).
+        directRevenueFromMines = Math.max (directRevenueFromMines, totalMineRevenue);
+        return invalidRuns;
+    }
+
+    /**
+     * Checks the run of a train with the given end vertices
+     * @return INVALID_RUN if the run is not allowed, otherwise the revenue from mines
+     */
+    private int checkRun(NetworkTrain train, NetworkVertex firstVertex, NetworkVertex lastVertex) {
+        String trainCategory = train.getRailsTrain().getCategory();
+        if (!Util.hasValue(trainCategory)) {
+            log.debug("No category");
+            return 0;
+        }
+
+        // check if runs do not start or end at a coal mine
+        // for a train category that is not allowed to do so
+        // (this part of the modifier is not specific for 1837)
+        Stop firstStop = firstVertex.getStop();
+        Station firstStation = firstStop.getRelatedStation();
+        boolean firstStationIsMine = firstStation.getType() == Stop.Type.MINE;
+        Access firstStationAccess = firstStation.getAccess();
+        Stop lastStop = lastVertex.getStop();
+        Station lastStation = lastStop.getRelatedStation();
+        boolean lastStationIsMine = lastStation.getType() == Stop.Type.MINE;
+        Access lastStationAccess = lastStation.getAccess();
+
+        if (firstStationIsMine && !(firstStationAccess == null
+                    || firstStationAccess.getRunToTrainCategories().contains(trainCategory))) {
+            log.debug("Invalid first stop: access={} or wrong category");
+            return INVALID_RUN;
+        }
+        if (lastStationIsMine && !(lastStationAccess == null
+                || lastStationAccess.getRunToTrainCategories().contains(trainCategory))) {
+            log.debug("Invalid last stop: access={} or wrong category");
+            return INVALID_RUN;
+        }
+        // Coal train runs must include just one mine
+        // (note: this makes the mutexId check redundant)
+        // "goods" may be 1837-specific
+        if (trainCategory.equalsIgnoreCase("goods")) {
+            if (firstStationIsMine == lastStationIsMine) {
+                log.debug("Invalid, GT mines: {}, {}",firstStationIsMine,lastStationIsMine);
+                return INVALID_RUN;
+            } else /*if (evaluateMine)*/ {
+                // Save the revenue from the mine(s), which in 1837
+                // becomes 'direct revenue' into the company treasury.
+                Stop mine = (firstStationIsMine ? firstStop : lastStop);
+                Phase phase = train.getRailsTrain().getRoot().getPhaseManager().getCurrentPhase();
+                return mine.getParent().getCurrentValueForPhase(phase);
             }
-            // Coal train runs must include just one mine
-            // (note: this makes the mutexId check redundant)
-            // "goods" may be 1837-specific
-            if (trainCategory.equalsIgnoreCase("goods")) {
-                if (firstStationIsMine == lastStationIsMine) {
-                    log.debug("Invalid, GT mines: {}, {}",firstStationIsMine,lastStationIsMine);
-                    invalidRuns.add(run);
-                } else /*if (evaluateMine)*/ {
-                    // Save the revenue from the mine(s), which in 1837
-                    // becomes 'direct revenue' into the company treasury.
-                    Stop mine = (firstStationIsMine ? firstStop : lastStop);
-                    Phase phase = run.getTrain().getRailsTrain().getRoot().getPhaseManager().getCurrentPhase();
-                    int mineRevenue = mine.getParent().getCurrentValueForPhase(phase);
-                    //directRevenueFromMines += mineRevenue;
-                    totalMineRevenue += mineRevenue;
+        }
+        return 0;
+    }
+
+    @Override
+    public int evaluationValue(RevenueRunView runView) {
+        int changeRevenues = 0;
+        int totalMineRevenue = 0;
+        for (int trainId = runView.getStartTrain(); trainId <= runView.getFinalTrain(); trainId++) {
+            int runLength = runView.getRunLength(trainId);
+            if (runLength < 2) continue;
+            // the first vertex is the end of the head run, if there is a bottom run
+            int baseVertex = runView.getRunVertex(trainId, 0);
+            int firstVertex = baseVertex;
+            for (int position = 1; position < runLength; position++) {
+                if (runView.getRunVertex(trainId, position) == baseVertex) {
+                    firstVertex = runView.getRunVertex(trainId, position - 1);
+                    break;
                 }
             }
-
+            int lastVertex = runView.getRunVertex(trainId, runLength - 1);
+            int mineRevenue = checkRun(runView.getTrain(trainId),
+                    runView.getVertex(firstVertex), runView.getVertex(lastVertex));
+            if (mineRevenue == INVALID_RUN) {
+                changeRevenues -= runView.getRunValue(trainId);
+            } else {
+                totalMineRevenue += mineRevenue;
+            }
         }
-        //evaluateMine = false;
         // Maximize the mine revenue (not sure if this is optimal).
         directRevenueFromMines = Math.max (directRevenueFromMines, totalMineRevenue);
-        return invalidRuns;
+        return changeRevenues;
     }
 
     @Override
@@ -1,6 +1,7 @@
 package net.sf.rails.game.specific._1880;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -12,10 +13,11 @@ import com.google.common.collect.Ordering;
 import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
-import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueDynamicViewModifier;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 
-    public class ExpressTrainModifier implements RevenueDynamicModifier {
+    public class ExpressTrainModifier implements RevenueDynamicViewModifier {
 
         private static final String TRAIN_6E = "6E";
         private static final String TRAIN_8E = "8E";
@@ -24,6 +26,10 @@ import net.sf.rails.algorithms.RevenueTrainRun;
 
         private boolean hasExpress;
 
+        // reused during the optimization
+        private int[] stations = new int[0];
+        private boolean[] bonusLost = new boolean[0];
+
         @Override
         public boolean prepareModifier(RevenueAdapter revenueAdapter) {
             // 1. check if there is a Express Train in the train set
@@ -90,11 +96,83 @@ import net.sf.rails.algorithms.RevenueTrainRun;
             return value;
         }
 
+        /**
+         * Same as valueChange for RevenueTrainRuns, but reads the run from the calculator:
+         * The vertex ids follow the value order, thus the lowest ids are the best stations
+         */
+        private int valueChange(RevenueRunView runView) {
+            int value = 0;
+            for (int trainId = runView.getStartTrain(); trainId <= runView.getFinalTrain(); trainId++) {
+                String trainName = runView.getTrain(trainId).getTrainName();
+                if (TRAIN_6E.equals(trainName)) {
+                    value += expressValueChange(runView, trainId, 6);
+                } else if (TRAIN_8E.equals(trainName)) {
+                    value += expressValueChange(runView, trainId, 8);
+                }
+            }
+            return value;
+        }
+
+        private int expressValueChange(RevenueRunView runView, int trainId, int length) {
+            int runLength = runView.getRunLength(trainId);
+            // without valid run no vertex counts
+            if (runLength < 2) return - runView.getRunValue(trainId);
+
+            if (stations.length < runLength) {
+                stations = new int[runLength];
+            }
+            if (bonusLost.length < runView.getNbBonuses()) {
+                bonusLost = new boolean[runView.getNbBonuses()];
+            }
+
+            // collect the stations of the run, the base vertex always counts
+            int baseVertex = runView.getRunVertex(trainId, 0);
+            int nbStations = 0;
+            for (int position = 1; position < runLength; position++) {
+                int vertexId = runView.getRunVertex(trainId, position);
+                if (vertexId == baseVertex || !runView.getVertex(vertexId).isStation()) continue;
+                stations[nbStations++] = vertexId;
+            }
+            Arrays.sort(stations, 0, nbStations);
+
+            // remove the value of stations beyond the length and of the bonuses requiring them
+            int value = 0;
+            for (int s = length - 1; s < nbStations; s++) {
+                int vertexId = stations[s];
+                value -= runView.getVertexValue(vertexId, trainId);
+                for (int b = 0; b < runView.getVertexNbBonuses(vertexId); b++) {
+                    int bonusId = runView.getVertexBonus(vertexId, b);
+                    if (!bonusLost[bonusId] && runView.isBonusReached(bonusId, trainId)) {
+                        bonusLost[bonusId] = true;
+                        value -= runView.getBonusValue(bonusId);
+                    }
+                }
+            }
+            // reset bonus flags
+            for (int s = length - 1; s < nbStations; s++) {
+                int vertexId = stations[s];
+                for (int b = 0; b < runView.getVertexNbBonuses(vertexId); b++) {
+                    bonusLost[runView.getVertexBonus(vertexId, b)] = false;
+                }
+            }
+            return value;
+        }
+
         @Override
         public int predictionValue(List<RevenueTrainRun> runs) {
             return valueChange(runs, false);
         }
 
+        @Override
+        public int predictionValue(RevenueRunView runView) {
+            return valueChange(runView);
+        }
+
+        @Override
+        public int evaluationValue(RevenueRunView runView) {
+            return valueChange(runView);
+        }
+
         @Override
         public int evaluationValue(List<RevenueTrainRun> runs, boolean optimalRuns) {
             return valueChange(runs, optimalRuns);
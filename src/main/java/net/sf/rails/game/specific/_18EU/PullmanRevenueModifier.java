@@ -6,12 +6,13 @@ import java.util.List;
 import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
-import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueDynamicViewModifier;
+import net.sf.rails.algorithms.RevenueRunView;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 
 
-public class PullmanRevenueModifier implements RevenueDynamicModifier {
+public class PullmanRevenueModifier implements RevenueDynamicViewModifier {
 
     private boolean hasPullman;
     private int maxValue;
@@ -49,11 +50,30 @@ public class PullmanRevenueModifier implements RevenueDynamicModifier {
         return maximum;
     }
 
+    @Override
+    public int evaluationValue(RevenueRunView runView) {
+        int maximum = 0;
+        for (int trainId = runView.getStartTrain(); trainId <= runView.getFinalTrain(); trainId++) {
+            for (int position = 0; position < runView.getRunLength(trainId); position++) {
+                int vertexId = runView.getRunVertex(trainId, position);
+                if (!runView.isMajor(vertexId)) continue;
+                maximum = Math.max(maximum, runView.getVertex(vertexId).getValue());
+            }
+            if (maximum == maxValue) break;
+        }
+        return maximum;
+    }
+
     @Override
     public int predictionValue(List<RevenueTrainRun> runs) {
         return maxValue;
     }
 
+    @Override
+    public int predictionValue(RevenueRunView runView) {
+        return maxValue;
+    }
+
     public boolean providesOwnCalculateRevenue() {
         // does not
         return false;
@@ -13,6 +13,8 @@ public abstract class AbstractItem implements Item {
     private final String id;
     private final Item parent;
     private final Context context;
+    private final String uri;
+    private final String fullURI;
 
     protected AbstractItem(Item parent, String id) {
         checkNotNull(parent, "Parent cannot be null");
@@ -24,10 +26,14 @@ public abstract class AbstractItem implements Item {
 
         if (parent instanceof Context) {
             context = (Context) parent;
+            uri = id;
         } else {
             // recursive definition
             context = parent.getContext();
+            uri = (parent.getURI() + Item.SEP + id).intern();
         }
+        // URIs are defined recursively, as the parent is final they are computed once
+        fullURI = (parent.getFullURI() + Item.SEP + id).intern();
 
         // add item to context
         context.addItem(this);
@@ -56,18 +62,12 @@ public abstract class AbstractItem implements Item {
 
     @Override
     public String getURI() {
-        if (parent instanceof Context) {
-            return id;
-        } else {
-            // recursive definition
-            return parent.getURI() + Item.SEP + id;
-        }
+        return uri;
     }
 
     @Override
     public String getFullURI() {
-        // recursive definition
-        return parent.getFullURI() + Item.SEP + id;
+        return fullURI;
     }
 
     @Override
@@ -66,5 +66,19 @@ public final class ArrayListMultimapState<K,V> extends State {
         }
     }
 
+    @Override
+    Object snapshotValue() {
+        return ArrayListMultimap.create(map);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    boolean restoreValue(Object value) {
+        if (map.equals(value)) return false;
+        map.clear();
+        map.putAll((ArrayListMultimap<K,V>) value);
+        return true;
+    }
+
     
 }
@@ -194,5 +194,19 @@ public final class ArrayListState<E> extends State implements Iterable<E> {
         }
     }
 
+    @Override
+    Object snapshotValue() {
+        return new ArrayList<>(list);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    boolean restoreValue(Object value) {
+        if (list.equals(value)) return false;
+        list.clear();
+        list.addAll((List<E>) value);
+        return true;
+    }
+
 
 }
@@ -39,4 +39,16 @@ public final class BooleanState extends State {
     public void change(boolean value) {
         this.value = value;
     }
+
+    @Override
+    Object snapshotValue() {
+        return value;
+    }
+
+    @Override
+    boolean restoreValue(Object value) {
+        if (this.value == (Boolean) value) return false;
+        this.value = (Boolean) value;
+        return true;
+    }
 }
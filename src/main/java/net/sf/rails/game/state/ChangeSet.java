@@ -2,12 +2,9 @@ package net.sf.rails.game.state;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-
 import static com.google.common.base.Preconditions.checkState;
 
 /**
@@ -22,11 +19,17 @@ public class ChangeSet {
     private static final Logger log = LoggerFactory.getLogger(ChangeSet.class);
 
     // static fields
-    private final List<Change> changes;
+    private final Change[] changes;
     private final ChangeAction action;
     private final int index;
 
-    ChangeSet(List<Change> changes, ChangeAction action, int index) {
+    // states affected by the changes, created on first use
+    private ImmutableSet<State> states;
+
+    /**
+     * @param changes the array is owned by the ChangeSet afterwards
+     */
+    ChangeSet(Change[] changes, ChangeAction action, int index) {
         this.changes = changes;
         this.action = action;
         this.index = index;
@@ -38,11 +41,14 @@ public class ChangeSet {
      * @return set of all states affected by Changes
      */
     ImmutableSet<State> getStates() {
-        ImmutableSet.Builder<State> builder = new ImmutableSet.Builder<State>();
-        for (Change change : changes) {
-            builder.add(change.getState());
+        if (states == null) {
+            ImmutableSet.Builder<State> builder = ImmutableSet.builder();
+            for (Change change : changes) {
+                builder.add(change.getState());
+            }
+            states = builder.build();
         }
-        return builder.build();
+        return states;
     }
 
     /**
@@ -66,13 +72,47 @@ public class ChangeSet {
         checkState(index != -1, "ChangeSet is initial - cannot be undone");
 
         // iterate reverse
-        for (Change change : Lists.reverse(changes)) {
+        for (int i = changes.length - 1; i >= 0; i--) {
+            Change change = changes[i];
             log.debug("About to undo: {}", change);
             change.undo();
             log.debug("Undone: {}", change);
         }
     }
 
+    /**
+     * re-executes the Changes of the States that are not stored in the snapshot
+     *
+     * @return the States changed
+     */
+    ImmutableSet<State> reexecuteUnstored(StateSnapshot snapshot) {
+        ImmutableSet.Builder<State> changed = ImmutableSet.builder();
+        for (Change change : changes) {
+            if (!snapshot.contains(change.getState())) {
+                change.execute();
+                changed.add(change.getState());
+            }
+        }
+        return changed.build();
+    }
+
+    /**
+     * un-executes the Changes of the States that are not stored in the snapshot
+     *
+     * @return the States changed
+     */
+    ImmutableSet<State> unexecuteUnstored(StateSnapshot snapshot) {
+        ImmutableSet.Builder<State> changed = ImmutableSet.builder();
+        for (int i = changes.length - 1; i >= 0; i--) {
+            Change change = changes[i];
+            if (!snapshot.contains(change.getState())) {
+                change.undo();
+                changed.add(change.getState());
+            }
+        }
+        return changed.build();
+    }
+
     /**
      * returns the ChangeAction associated with the ChangeSet
      *
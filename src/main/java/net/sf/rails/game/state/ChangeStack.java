@@ -2,15 +2,17 @@ package net.sf.rails.game.state;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
 
 public class ChangeStack {
 
@@ -19,23 +21,30 @@ public class ChangeStack {
     // static fields
     private final StateManager stateManager;
 
-    private final Deque<ChangeSet> undoStack = Lists.newLinkedList();
-    private final Deque<ChangeSet> redoStack = Lists.newLinkedList();
+    private final Deque<ChangeSet> undoStack = new ArrayDeque<>();
+    private final Deque<ChangeSet> redoStack = new ArrayDeque<>();
 
     private ChangeReporter reporter; // assigned once
 
-    // dynamic fields
-    private ImmutableList.Builder<Change> changeBuilder;
+    // dynamic fields: changes of the open ChangeSet, the buffer is reused after close
+    private Change[] pendingChanges = new Change[INITIAL_CAPACITY];
+    private int nbPendingChanges;
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    // snapshots taken at each snapshotInterval-th index, 0 => no snapshots
+    private static final int MAX_SNAPSHOTS = 16; // the oldest snapshot is removed first
+    private int snapshotInterval;
+    private final TreeMap<Integer, StateSnapshot> snapshots = new TreeMap<>();
 
     private ChangeStack(StateManager stateManager) {
         this.stateManager = stateManager;
         reporter = null;
-        changeBuilder = ImmutableList.builder();
     }
 
     /**
      * Creates a new ChangeStack
-     * It is initialized automatically, as there is an open ChangeBuilder
+     * It is initialized automatically, as changes are collected from the start
      */
     public static ChangeStack create(StateManager stateManager) {
         ChangeStack changeStack = new ChangeStack(stateManager);
@@ -51,6 +60,17 @@ public class ChangeStack {
         log.debug("Added ChangeReporter {}", reporter);
     }
 
+    /**
+     * Activates automatic snapshots, which are used by undo and redo to an index
+     * @param snapshotInterval number of ChangeSets between two snapshots, 0 => no snapshots
+     */
+    public void setSnapshotInterval(int snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+        if (snapshotInterval == 0) {
+            snapshots.clear();
+        }
+    }
+
     /**
      * @return the previous (closed) changeSet, null if empty
      */
@@ -63,14 +83,17 @@ public class ChangeStack {
      */
     void addChange(Change change) {
         log.debug("ChangeSet: Add {}", change);
-        changeBuilder.add(change);
+        if (nbPendingChanges == pendingChanges.length) {
+            pendingChanges = Arrays.copyOf(pendingChanges, 2 * nbPendingChanges);
+        }
+        pendingChanges[nbPendingChanges++] = change;
         // immediate execution and information of models
         change.execute();
         change.getState().informTriggers(change);
     }
 
     private boolean checkRequirementsForClose(ChangeAction action) {
-        if (changeBuilder.build().isEmpty() || action == null) {
+        if (nbPendingChanges == 0 || action == null) {
             return false;
         } else {
             return true;
@@ -79,26 +102,37 @@ public class ChangeStack {
 
     public void close(ChangeAction action) {
         if (checkRequirementsForClose(action)) {
-            // this has to be done before the changeBuilder closes
+            // this has to be done before the pending changes are cleared
             int index = undoStack.size() + 1;
-            ChangeSet closeSet = new ChangeSet(changeBuilder.build(), action, index);
+            ChangeSet closeSet = new ChangeSet(Arrays.copyOf(pendingChanges, nbPendingChanges), action, index);
             log.debug("<<< Closed changeSet {}", closeSet);
             undoStack.addLast(closeSet);
             redoStack.clear();
+            // snapshots of the removed ChangeSets
+            snapshots.tailMap(index, true).clear();
 
             if (reporter != null) {
                 reporter.updateOnClose();
             }
 
-            // restart builders
+            // restart pending changes
             restart();
+            // before the observers, which might add the changes of the next ChangeSet
+            if (snapshotInterval > 0 && index % snapshotInterval == 0) {
+                snapshots.put(index, createSnapshot());
+                if (snapshots.size() > MAX_SNAPSHOTS) {
+                    snapshots.pollFirstEntry();
+                }
+            }
             // inform direct and indirect observers
             updateObservers(closeSet.getStates());
         }
     }
 
     private void restart() {
-        changeBuilder = ImmutableList.builder();
+        // release the references to the changes
+        Arrays.fill(pendingChanges, 0, nbPendingChanges, null);
+        nbPendingChanges = 0;
     }
 
 
@@ -139,15 +173,7 @@ public class ChangeStack {
 
     public void undo(int index) {
         checkState(isUndoPossible() && index < undoStack.size() , "Undo not possible");
-        ImmutableSet.Builder<State> states = ImmutableSet.builder();
-        while (undoStack.size() > index) {
-            states.addAll(executeUndo().getStates());
-        }
-        restart();
-        updateObservers(states.build());
-        if (reporter != null) {
-            reporter.updateAfterUndoRedo();
-        }
+        moveTo(index);
     }
 
     private ChangeSet executeUndo() {
@@ -192,7 +218,35 @@ public class ChangeStack {
         checkState(index > undoStack.size() && index <= undoStack.size() + redoStack.size(),
                 "Redo not possible");
 
+        moveTo(index);
+    }
+
+    private ChangeSet executeRedo() {
+        ChangeSet redoSet = redoStack.pollFirst();
+        log.debug("RedoSet = {}", redoSet);
+        redoSet.reexecute();
+        undoStack.addLast(redoSet);
+
+        if (reporter != null) {
+            reporter.informOnRedo();
+        }
+
+        return redoSet;
+    }
+
+    /**
+     * Undo or redo to the index, starting from the nearest snapshot if this saves ChangeSets
+     */
+    private void moveTo(int index) {
         ImmutableSet.Builder<State> states = ImmutableSet.builder();
+        StateSnapshot snapshot = getNearestSnapshot(index);
+        if (snapshot != null) {
+            log.debug("Restore snapshot {} to move to index {}", snapshot, index);
+            states.addAll(restoreStates(snapshot));
+        }
+        while (undoStack.size() > index) {
+            states.addAll(executeUndo().getStates());
+        }
         while (undoStack.size() < index) {
             states.addAll(executeRedo().getStates());
         }
@@ -203,17 +257,95 @@ public class ChangeStack {
         }
     }
 
-    private ChangeSet executeRedo() {
-        ChangeSet redoSet = redoStack.pollFirst();
-        log.debug("RedoSet = {}", redoSet);
-        redoSet.reexecute();
-        undoStack.addLast(redoSet);
+    private StateSnapshot getNearestSnapshot(int index) {
+        // restoring a snapshot costs about as much as executing snapshotInterval ChangeSets
+        int distance = Math.abs(undoStack.size() - index) - snapshotInterval;
+        StateSnapshot nearest = null;
+        for (Integer key : Arrays.asList(snapshots.floorKey(index), snapshots.ceilingKey(index))) {
+            if (key != null && Math.abs(key - index) < distance && isRestorable(snapshots.get(key))) {
+                nearest = snapshots.get(key);
+                distance = Math.abs(key - index);
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Creates a snapshot of all states at the current index
+     * @throws IllegalStateException if there are changes of an open ChangeSet
+     */
+    public StateSnapshot createSnapshot() {
+        checkState(nbPendingChanges == 0, "Snapshot not possible with an open ChangeSet");
+        return StateSnapshot.create(stateManager, getClosedChangeSet(), undoStack.size());
+    }
+
+    /**
+     * @return true if the ChangeSet of the snapshot is still on the undo or redo stack
+     */
+    public boolean isRestorable(StateSnapshot snapshot) {
+        if (snapshot.getStateManager() != stateManager || snapshot.getIndex() > getMaximumIndex()) {
+            return false;
+        }
+        return getChangeSet(snapshot.getIndex()) == snapshot.getChangeSet();
+    }
 
+    // ChangeSet with the index (starting with 1), null for index 0
+    private ChangeSet getChangeSet(int index) {
+        if (index == 0) return null;
+        Iterator<ChangeSet> sets;
+        int position;
+        if (index <= undoStack.size()) {
+            sets = undoStack.iterator();
+            position = index;
+        } else {
+            sets = redoStack.iterator();
+            position = index - undoStack.size();
+        }
+        ChangeSet set = null;
+        for (int i = 0; i < position; i++) {
+            set = sets.next();
+        }
+        return set;
+    }
+
+    /**
+     * Restores the states of the snapshot, ChangeSets after the snapshot can be redone
+     * @throws IllegalStateException if the snapshot is not restorable
+     */
+    public void restore(StateSnapshot snapshot) {
+        checkState(isRestorable(snapshot), "Snapshot not restorable");
+        ImmutableSet<State> states = restoreStates(snapshot);
+        restart();
+        updateObservers(states);
         if (reporter != null) {
-            reporter.informOnRedo();
+            reporter.updateAfterUndoRedo();
         }
+    }
 
-        return redoSet;
+    /**
+     * Moves the ChangeSets between the stacks and restores the states of the snapshot,
+     * only the changes of states created after the snapshot are executed
+     */
+    private ImmutableSet<State> restoreStates(StateSnapshot snapshot) {
+        ImmutableSet.Builder<State> states = ImmutableSet.builder();
+        while (undoStack.size() > snapshot.getIndex()) {
+            ChangeSet undoSet = undoStack.pollLast();
+            states.addAll(undoSet.unexecuteUnstored(snapshot));
+            redoStack.addFirst(undoSet);
+            if (reporter != null) {
+                reporter.informOnUndo();
+            }
+        }
+        while (undoStack.size() < snapshot.getIndex()) {
+            ChangeSet redoSet = redoStack.pollFirst();
+            states.addAll(redoSet.reexecuteUnstored(snapshot));
+            undoStack.addLast(redoSet);
+            if (reporter != null) {
+                reporter.informOnRedo();
+            }
+        }
+        states.addAll(snapshot.restoreStates());
+        return states.build();
     }
 
     /**
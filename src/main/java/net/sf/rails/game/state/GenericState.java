@@ -67,4 +67,17 @@ public final class GenericState<E> extends State {
         this.object = object;
     }
 
+    @Override
+    Object snapshotValue() {
+        return object;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    boolean restoreValue(Object value) {
+        if (object == value) return false;
+        object = (E) value;
+        return true;
+    }
+
 }
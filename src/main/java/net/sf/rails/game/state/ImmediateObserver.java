@@ -0,0 +1,11 @@
+package net.sf.rails.game.state;
+
+/**
+ * An Observer that is part of the game logic
+ * <p>
+ * It is updated immediately, even if the notifications are suspended
+ * (see {@link StateManager#suspendNotifications()})
+ */
+public interface ImmediateObserver extends Observer {
+
+}
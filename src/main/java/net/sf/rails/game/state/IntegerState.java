@@ -48,5 +48,17 @@ public final class IntegerState extends State {
     void change(int value) {
         this.value = value;
     }
+
+    @Override
+    Object snapshotValue() {
+        return value;
+    }
+
+    @Override
+    boolean restoreValue(Object value) {
+        if (this.value == (Integer) value) return false;
+        this.value = (Integer) value;
+        return true;
+    }
     
 }
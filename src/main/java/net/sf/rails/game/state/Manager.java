@@ -13,6 +13,7 @@ public abstract class Manager extends Context {
     private final Item parent;
     // context fields
     private final Root root;
+    private final String uri;
     private final String fullURI;
 
     protected Manager(Item parent, String id) {
@@ -23,8 +24,13 @@ public abstract class Manager extends Context {
         checkNotNull(parent, "Parent cannot be null");
         this.parent = parent;
 
-        // URI defined recursively
-        fullURI =  parent.getFullURI() + Item.SEP + id;
+        // URIs defined recursively
+        if (parent instanceof Context) {
+            uri = id;
+        } else {
+            uri = (parent.getURI() + Item.SEP + id).intern();
+        }
+        fullURI = (parent.getFullURI() + Item.SEP + id).intern();
 
         // find root and add context there
         root = parent.getContext().getRoot();
@@ -54,12 +60,7 @@ public abstract class Manager extends Context {
 
     @Override
     public String getURI() {
-        if (parent instanceof Context) {
-            return id;
-        } else {
-            // recursive definition
-            return parent.getURI() + Item.SEP + id;
-        }
+        return uri;
     }
 
     @Override
@@ -3,6 +3,7 @@ package net.sf.rails.game.state;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.google.common.collect.ImmutableCollection;
@@ -153,6 +154,20 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
             getMap().put(key, value);
         }
     }
+
+    @Override
+    Object snapshotValue() {
+        return new LinkedHashMap<>(getMap());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    boolean restoreValue(Object value) {
+        if (getMap().equals(value)) return false;
+        getMap().clear();
+        getMap().putAll((Map<K,V>) value);
+        return true;
+    }
     
     @Override
     public String toText() {
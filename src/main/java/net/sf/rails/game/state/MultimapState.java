@@ -3,6 +3,7 @@ package net.sf.rails.game.state;
 import java.util.Iterator;
 import java.util.Set;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
@@ -109,4 +110,19 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
             getMap().remove(key, value);
         }
     }
+
+    // both implementations are SetMultimaps
+    @Override
+    Object snapshotValue() {
+        return HashMultimap.create(getMap());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    boolean restoreValue(Object value) {
+        if (getMap().equals(value)) return false;
+        getMap().clear();
+        getMap().putAll((Multimap<K,V>) value);
+        return true;
+    }
 }
@@ -15,6 +15,8 @@ public abstract class Observable implements Item {
     private final String id;
     private final Item parent;
     private final Context context;
+    private final String uri;
+    private final String fullURI;
 
     /**
      * @param parent parent node in item hierarchy (cannot be null)
@@ -33,10 +35,14 @@ public abstract class Observable implements Item {
 
         if (parent instanceof Context) {
             context = (Context) parent;
+            uri = id;
         } else {
             // recursive definition
             context = parent.getContext();
+            uri = (parent.getURI() + Item.SEP + id).intern();
         }
+        // URIs are defined recursively, as the parent is final they are computed once
+        fullURI = (parent.getFullURI() + Item.SEP + id).intern();
 
         context.addItem(this);
     }
@@ -118,18 +124,12 @@ public abstract class Observable implements Item {
 
     @Override
     public String getURI() {
-        if (parent instanceof Context) {
-            return id;
-        } else {
-            // recursive definition
-            return parent.getURI() + Item.SEP + id;
-        }
+        return uri;
     }
 
     @Override
     public String getFullURI() {
-        // recursive definition
-        return parent.getFullURI() + Item.SEP + id;
+        return fullURI;
     }
 
     @Override
@@ -46,6 +46,18 @@ public class Purse extends Wallet<Currency> {
         amount += value;
     }
 
+    @Override
+    Object snapshotValue() {
+        return amount;
+    }
+
+    @Override
+    boolean restoreValue(Object value) {
+        if (amount == (Integer) value) return false;
+        amount = (Integer) value;
+        return true;
+    }
+
     @Override
     public String toText() {
         return currency.format(amount);
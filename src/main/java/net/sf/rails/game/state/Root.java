@@ -2,7 +2,9 @@ package net.sf.rails.game.state;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.collect.Lists;
 /**
@@ -16,6 +18,10 @@ public class Root extends Context {
    private StateManager stateManager;
    private HashMapState<String, Item> items;
 
+   // handles are assigned once per item and kept if the item is removed (e.g. by undo)
+   private final List<Item> itemsByHandle = Lists.newArrayList();
+   private final Map<Item, Integer> handles = new IdentityHashMap<>();
+
    // only used during creation
    private boolean delayItems = true;
    private final List<Item> delayedItems = Lists.newArrayList();
@@ -45,6 +51,7 @@ public class Root extends Context {
        items = HashMapState.create(this, "items");
        for (Item item: delayedItems) {
            items.put(item.getFullURI(), item);
+           assignHandle(item);
        }
        delayItems = false;
    }
@@ -114,6 +121,31 @@ public class Root extends Context {
        return items.get(uri);
    }
 
+   /**
+    * @return a dense integer handle of the item, which is stable for the lifetime of the root
+    * @throws IllegalArgumentException if the item was never added to the root
+    */
+   public int getHandle(Item item) {
+       Integer handle = handles.get(item);
+       checkArgument(handle != null, "Root does not know item with fullURI = %s", item.getFullURI());
+       return handle;
+   }
+
+   /**
+    * @return the item with the handle
+    * @throws IndexOutOfBoundsException if no item has that handle
+    */
+   public Item getItem(int handle) {
+       return itemsByHandle.get(handle);
+   }
+
+   private void assignHandle(Item item) {
+       if (!handles.containsKey(item)) {
+           handles.put(item, itemsByHandle.size());
+           itemsByHandle.add(item);
+       }
+   }
+
    @Override
    void addItem(Item item) {
        // check if it has to be delayed
@@ -128,6 +160,7 @@ public class Root extends Context {
 
        // all preconditions ok => add
        items.put(item.getFullURI(), item);
+       assignHandle(item);
    }
 
    @Override
@@ -1,6 +1,7 @@
 package net.sf.rails.game.state;
 
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableSet;
@@ -91,4 +92,18 @@ public abstract class SetState<E> extends State implements Iterable<E>  {
         }
     }
 
+    @Override
+    Object snapshotValue() {
+        return new LinkedHashSet<>(getSet());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    boolean restoreValue(Object value) {
+        if (getSet().equals(value)) return false;
+        getSet().clear();
+        getSet().addAll((Set<E>) value);
+        return true;
+    }
+
 }
@@ -29,5 +29,17 @@ public abstract class State extends Observable {
     void informTriggers(Change change) {
         this.getStateManager().informTriggers(this, change);
     }
+
+    /**
+     * @return copy of the current value, not affected by later changes (see {@link StateSnapshot})
+     */
+    abstract Object snapshotValue();
+
+    /**
+     * Sets the value of a snapshot without creating a Change
+     * @param value copy created by {@link #snapshotValue()}
+     * @return true if the value was different
+     */
+    abstract boolean restoreValue(Object value);
    
 }
\ No newline at end of file
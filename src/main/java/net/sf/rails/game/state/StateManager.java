@@ -2,8 +2,10 @@ package net.sf.rails.game.state;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -15,6 +17,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 public final class StateManager extends Manager {
 
@@ -30,6 +33,16 @@ public final class StateManager extends Manager {
     // observers is not a state variable (as the have to register and de-register themselves)
     // gui eleemnts do not have a state of their own (with respect to the game engine)
     private final HashMultimap<Observable, Observer> observers = HashMultimap.create();
+    // subset of the observers that are ImmediateObservers
+    private final HashMultimap<Observable, Observer> immediateObservers = HashMultimap.create();
+
+    // cached topological order of the models, invalidated by changes of the models
+    private final Map<Observable, ImmutableList<Model>> dependentModels = Maps.newHashMap();
+    private Map<Observable, Integer> ranks;
+
+    // states changed while the observer notifications are suspended
+    private final Set<State> dirtyStates = Sets.newHashSet();
+    private int suspensionDepth;
 
     // initialized later in init()
     private PortfolioManager portfolioManager;
@@ -83,12 +96,16 @@ public final class StateManager extends Manager {
     synchronized void addObserver(Observer observer, Observable observable) {
         checkArgument(!observers.containsValue(observer), "Observer can only be assigned to one Observable");
         observers.put(observable, observer);
+        if (observer instanceof ImmediateObserver) {
+            immediateObservers.put(observable, observer);
+        }
     }
 
     /**
      * Remove combination of observer to observable
      */
     boolean removeObserver(Observer observer, Observable observable) {
+        immediateObservers.remove(observable, observer);
         return observers.remove(observable, observer);
     }
 
@@ -106,10 +123,18 @@ public final class StateManager extends Manager {
      */
     void addModel(Model model, Observable observable) {
         models.put(observable, model);
+        invalidateModelOrder();
     }
 
     boolean removeModel(Model model, Observable observable) {
-        return models.remove(observable, model);
+        boolean removed = models.remove(observable, model);
+        invalidateModelOrder();
+        return removed;
+    }
+
+    private void invalidateModelOrder() {
+        dependentModels.clear();
+        ranks = null;
     }
 
     ImmutableSet<Model> getModels(Observable observable) {
@@ -142,9 +167,7 @@ public final class StateManager extends Manager {
         }
 
         // check if there are models
-        ImmutableSet<Model> initModels = getModels(state);
-        if (initModels.isEmpty()) return;
-        ImmutableList<Model> allModels = getModelsToUpdate(initModels);
+        ImmutableList<Model> allModels = getDependentModels(state);
 
         // Inform indirect triggers
         for (Model m:allModels) {
@@ -159,22 +182,72 @@ public final class StateManager extends Manager {
      * A set of observables is given as input
      * and then calculates all observer to update in the correct sequence
      *
-     * It uses a topological sort based on DFS
+     * The models that depend on each observable are cached, the combination
+     * uses the rank of the models in the topological order of all models
      *
      * @param observables that have been updated
      * @return sorted list of all models to be updated
      */
     ImmutableList<Model> getModelsToUpdate(Collection<? extends Observable> observables) {
-        // Topological sort
-        // Initialize (we do not use WHITE explicitly, but implicit)
-        final Map<Observable, Color> colors = Maps.newHashMap();
-        final LinkedList<Model> topoList = Lists.newLinkedList();
+        if (observables.size() == 1) {
+            return getDependentModels(observables.iterator().next());
+        }
+        Set<Model> allModels = Sets.newHashSet();
+        for (Observable observable: observables) {
+            allModels.addAll(getDependentModels(observable));
+        }
+        if (allModels.size() <= 1) {
+            return ImmutableList.copyOf(allModels);
+        }
+        final Map<Observable, Integer> ranks = getRanks();
+        Model[] sorted = allModels.toArray(new Model[0]);
+        Arrays.sort(sorted, (m1, m2) -> Integer.compare(ranks.get(m1), ranks.get(m2)));
+        return ImmutableList.copyOf(sorted);
+    }
 
-        // For all states
-        for (Observable s: observables) {
-            topoSort(s, colors, topoList);
+    /**
+     * @return sorted list of all models that depend on the observable
+     * @throws IllegalStateException if the models that depend on the observable contain a cycle
+     */
+    private ImmutableList<Model> getDependentModels(Observable observable) {
+        ImmutableList<Model> dependents = dependentModels.get(observable);
+        if (dependents == null) {
+            // Topological sort
+            // Initialize (we do not use WHITE explicitly, but implicit)
+            final Map<Observable, Color> colors = Maps.newHashMap();
+            final LinkedList<Model> topoList = Lists.newLinkedList();
+            topoSort(observable, colors, topoList);
+            dependents = ImmutableList.copyOf(topoList);
+            dependentModels.put(observable, dependents);
         }
-        return ImmutableList.copyOf(topoList);
+        return dependents;
+    }
+
+    /**
+     * Ranks all models in the topological order of the complete graph
+     * Cycles are ignored, as they are detected for the dependent models
+     */
+    private Map<Observable, Integer> getRanks() {
+        if (ranks == null) {
+            Set<Observable> visited = Sets.newHashSet();
+            List<Model> postOrder = Lists.newArrayList();
+            for (Observable observable: models.keySet()) {
+                rankSort(observable, visited, postOrder);
+            }
+            ranks = Maps.newHashMapWithExpectedSize(postOrder.size());
+            for (int i = 0; i < postOrder.size(); i++) {
+                ranks.put(postOrder.get(i), postOrder.size() - i);
+            }
+        }
+        return ranks;
+    }
+
+    private void rankSort(Observable v, Set<Observable> visited, List<Model> postOrder) {
+        if (!visited.add(v)) return;
+        for (Model m:getModels(v)) {
+            rankSort(m, visited, postOrder);
+        }
+        if (v instanceof Model) postOrder.add((Model)v);
     }
 
     private static enum Color {WHITE, GREY, BLACK};
@@ -192,10 +265,81 @@ public final class StateManager extends Manager {
     }
 
 
+    /**
+     * Suspension of the observer notifications, e.g. during replay of a game
+     * <p>
+     * Triggers and ImmediateObservers are still informed immediately.
+     * The other observers of the changed states and their models are updated once when the
+     * (outermost) scope is closed.
+     */
+    public final class NotificationScope implements AutoCloseable {
+        private boolean closed;
+
+        private NotificationScope() {
+            suspensionDepth++;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            if (--suspensionDepth == 0 && !dirtyStates.isEmpty()) {
+                ImmutableSet<State> states = ImmutableSet.copyOf(dirtyStates);
+                dirtyStates.clear();
+                log.debug("StateManager: update observers of {} suspended states", states.size());
+                updateObservers(states, Selection.DEFERRABLE);
+            }
+        }
+    }
+
+    /**
+     * Suspends the observer notifications until the returned scope is closed
+     * Scopes can be nested, notifications are resumed by the close of the outermost scope
+     */
+    public NotificationScope suspendNotifications() {
+        return new NotificationScope();
+    }
+
     void updateObservers(Set<State> states) {
+        // undo and redo can change the models
+        if (states.contains(models)) {
+            invalidateModelOrder();
+        }
+        if (suspensionDepth > 0) {
+            dirtyStates.addAll(states);
+            if (!immediateObservers.isEmpty()) {
+                updateObservers(states, Selection.IMMEDIATE);
+            }
+        } else {
+            updateObservers(states, Selection.ALL);
+        }
+    }
+
+    private static enum Selection {ALL, IMMEDIATE, DEFERRABLE};
+
+    private Set<Observer> getObservers(Observable observable, Selection selection) {
+        switch (selection) {
+            case IMMEDIATE:
+                return ImmutableSet.copyOf(immediateObservers.get(observable));
+            case DEFERRABLE:
+                return ImmutableSet.copyOf(Sets.difference(observers.get(observable),
+                        immediateObservers.get(observable)));
+            default:
+                return getObservers(observable);
+        }
+    }
+
+    private boolean hasImmediateModelObservers() {
+        for (Observable observable:immediateObservers.keySet()) {
+            if (observable instanceof Model) return true;
+        }
+        return false;
+    }
+
+    private void updateObservers(Set<State> states, Selection selection) {
         // all direct observers
         for (State s:states){
-            Set<Observer> observers = getObservers(s);
+            Set<Observer> observers = getObservers(s, selection);
             if (observers.isEmpty()) continue;
             // cache StateText
             String stateText = s.toText();
@@ -206,8 +350,9 @@ public final class StateManager extends Manager {
         }
 
         // all indirect observers
+        if (selection == Selection.IMMEDIATE && !hasImmediateModelObservers()) return;
         for (Model m:getModelsToUpdate(states)) {
-            Set<Observer> observers = getObservers(m);
+            Set<Observer> observers = getObservers(m, selection);
             if (observers.isEmpty()) continue;
             // cache ModelText
             String modelText = m.toText();
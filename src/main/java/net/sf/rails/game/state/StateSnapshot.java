@@ -0,0 +1,91 @@
+package net.sf.rails.game.state;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A StateSnapshot stores the values of all States registered at the StateManager
+ * at a closed ChangeSet.
+ * <p>
+ * Restoring the snapshot (see {@link ChangeStack#restore(StateSnapshot)}) sets all States
+ * in one pass instead of undoing or redoing the intermediate ChangeSets.
+ * States created after the snapshot are not stored, only their Changes
+ * in the intermediate ChangeSets are undone or redone.
+ * <p>
+ * Snapshots are held in memory only, as the values reference the Items of the game.
+ */
+public final class StateSnapshot {
+
+    private final StateManager stateManager;
+    private final ChangeSet changeSet;
+    private final int index;
+
+    // values in the iteration order of the states
+    private final ImmutableSet<State> states;
+    private final Object[] values;
+
+    private StateSnapshot(StateManager stateManager, ChangeSet changeSet, int index) {
+        this.stateManager = stateManager;
+        this.changeSet = changeSet;
+        this.index = index;
+
+        states = stateManager.getAllStates();
+        values = new Object[states.size()];
+        int i = 0;
+        for (State state : states) {
+            values[i++] = state.snapshotValue();
+        }
+    }
+
+    static StateSnapshot create(StateManager stateManager, ChangeSet changeSet, int index) {
+        return new StateSnapshot(stateManager, changeSet, index);
+    }
+
+    StateManager getStateManager() {
+        return stateManager;
+    }
+
+    /**
+     * @return the last closed ChangeSet at the time of the snapshot, null if there was none
+     */
+    ChangeSet getChangeSet() {
+        return changeSet;
+    }
+
+    /**
+     * @return index of the ChangeStack at the time of the snapshot
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return true if the value of the State is stored in the snapshot
+     */
+    boolean contains(State state) {
+        return states.contains(state);
+    }
+
+    /**
+     * Sets all States to the values of the snapshot
+     * @return the States that have been changed
+     */
+    ImmutableSet<State> restoreStates() {
+        ImmutableSet.Builder<State> changed = ImmutableSet.builder();
+        int i = 0;
+        for (State state : states) {
+            if (state.restoreValue(values[i++])) {
+                changed.add(state);
+            }
+        }
+        return changed.build();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("Index", index)
+                .add("States", states.size())
+                .toString();
+    }
+}
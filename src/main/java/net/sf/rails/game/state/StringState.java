@@ -1,5 +1,7 @@
 package net.sf.rails.game.state;
 
+import java.util.Objects;
+
 /**
  * A stateful version of a String variable
  */
@@ -76,4 +78,16 @@ public final class StringState extends State {
     void change(String value) {
         this.value = value;
     }
+
+    @Override
+    Object snapshotValue() {
+        return value;
+    }
+
+    @Override
+    boolean restoreValue(Object value) {
+        if (Objects.equals(this.value, value)) return false;
+        this.value = (String) value;
+        return true;
+    }
 }
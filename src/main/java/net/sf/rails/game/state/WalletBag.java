@@ -43,6 +43,18 @@ public class WalletBag<T extends Countable> extends Wallet<T> {
         amount += value;
     }
 
+    @Override
+    Object snapshotValue() {
+        return amount;
+    }
+
+    @Override
+    boolean restoreValue(Object value) {
+        if (amount == (Integer) value) return false;
+        amount = (Integer) value;
+        return true;
+    }
+
     @Override
     public String toText() {
         return Integer.toString(amount);
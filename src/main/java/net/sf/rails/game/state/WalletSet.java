@@ -1,5 +1,6 @@
 package net.sf.rails.game.state;
 
+import java.util.Map;
 import java.util.TreeMap;
 
 import com.google.common.collect.ImmutableSortedMap;
@@ -57,6 +58,20 @@ public class WalletSet<T extends Countable> extends Wallet<T> {
     void change (T item, int value) {
         wallet.put(item, value(item) + value);
     }
+
+    @Override
+    Object snapshotValue() {
+        return new TreeMap<>(wallet);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    boolean restoreValue(Object value) {
+        if (wallet.equals(value)) return false;
+        wallet.clear();
+        wallet.putAll((Map<T, Integer>) value);
+        return true;
+    }
     
     @Override
     public String toText() {
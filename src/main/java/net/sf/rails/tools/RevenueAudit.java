@@ -0,0 +1,251 @@
+package net.sf.rails.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sf.rails.algorithms.RevenueAdapter;
+import net.sf.rails.algorithms.RevenueResult;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.Phase;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+import rails.game.action.PossibleAction;
+import rails.game.action.SetDividend;
+
+/**
+ * Headless audit of the revenues declared in saved games.
+ * <p>
+ * Each saved game is replayed without user interface. Before each SetDividend action
+ * the optimal run of the operating company is calculated and compared with the declared revenue.
+ * Each SetDividend results in one line of output (CSV or JSON), written as soon as it is available.
+ * <p>
+ * The files are processed in parallel, each by one worker with its own game engine.
+ * The engines still share static state: Configuration options stored in saved games are applied
+ * to the global configuration (ConfigManager), thus archives that rely on different configuration options
+ * should be audited separately. The money format (MoneyFormatter) is global and defined by the configuration.
+ * <p>
+ * Usage: RevenueAudit [-threads n] [-format csv|json] [-budget seconds] [-output file] files or directories...
+ */
+public class RevenueAudit {
+
+    private static final Logger log = LoggerFactory.getLogger(RevenueAudit.class);
+
+    private static final String SAVED_GAME_EXTENSION = ".rails";
+
+    private static final String[] COLUMNS = {"file", "action", "round", "company", "phase",
+            "declared", "declaredTreasury", "optimal", "optimalSpecial", "complete", "status"};
+
+    private enum Format {CSV, JSON}
+
+    private final PrintWriter output;
+    private final Format format;
+    private final Duration budget;
+
+    private final AtomicInteger nbFiles = new AtomicInteger();
+    private final AtomicInteger nbFailedFiles = new AtomicInteger();
+    private final AtomicInteger nbDividends = new AtomicInteger();
+    private final AtomicInteger nbMismatches = new AtomicInteger();
+
+    private RevenueAudit(PrintWriter output, Format format, Duration budget) {
+        this.output = output;
+        this.format = format;
+        this.budget = budget;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int nbThreads = Runtime.getRuntime().availableProcessors();
+        Format format = Format.CSV;
+        Duration budget = null;
+        String outputName = null;
+        List<File> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("-") && i + 1 == args.length) {
+                usage("Missing value for " + arg);
+                return;
+            }
+            switch (arg) {
+                case "-threads":
+                    nbThreads = Integer.parseInt(args[++i]);
+                    break;
+                case "-format":
+                    format = Format.valueOf(args[++i].toUpperCase());
+                    break;
+                case "-budget":
+                    budget = Duration.ofMillis((long) (Double.parseDouble(args[++i]) * 1000));
+                    break;
+                case "-output":
+                    outputName = args[++i];
+                    break;
+                default:
+                    addSavedGames(new File(arg), files);
+            }
+        }
+        if (files.isEmpty()) {
+            usage("No saved games found");
+            return;
+        }
+
+        ConfigManager.initConfiguration(false);
+
+        PrintWriter output;
+        if (outputName != null) {
+            output = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outputName), StandardCharsets.UTF_8));
+        } else {
+            output = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        }
+
+        RevenueAudit audit = new RevenueAudit(output, format, budget);
+        audit.run(files, Math.max(1, nbThreads));
+        output.close();
+
+        System.err.println("Files: " + audit.nbFiles + " (failed: " + audit.nbFailedFiles + ")"
+                + ", dividends: " + audit.nbDividends + ", mismatches: " + audit.nbMismatches);
+        // revenue calculations might have left non-daemon threads
+        System.exit(0);
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: RevenueAudit [-threads n] [-format csv|json] [-budget seconds] [-output file]"
+                + " files or directories...");
+    }
+
+    private static void addSavedGames(File file, List<File> files) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) return;
+            Arrays.sort(children);
+            for (File child : children) {
+                addSavedGames(child, files);
+            }
+        } else if (file.getName().endsWith(SAVED_GAME_EXTENSION)) {
+            files.add(file);
+        }
+    }
+
+    private void run(List<File> files, int nbThreads) throws InterruptedException {
+        if (format == Format.CSV) {
+            write(String.join(",", COLUMNS));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        for (final File file : files) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    auditFile(file);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    private void auditFile(final File file) {
+        nbFiles.incrementAndGet();
+        final GameLoader loader = new GameLoader();
+        loader.setReplayListener(new GameLoader.ReplayListener() {
+            @Override
+            public void beforeAction(int count, PossibleAction action) {
+                if (action instanceof SetDividend) {
+                    auditDividend(file, count, loader.getRoot(), (SetDividend) action);
+                }
+            }
+        });
+        try {
+            if (!loader.createFromFile(file)) {
+                nbFailedFiles.incrementAndGet();
+                log.warn("Replay of {} failed: {}", file, loader.getException());
+            }
+        } catch (RuntimeException e) {
+            nbFailedFiles.incrementAndGet();
+            log.warn("Replay of {} failed", file, e);
+        }
+    }
+
+    private void auditDividend(File file, int count, RailsRoot root, SetDividend action) {
+        nbDividends.incrementAndGet();
+        PublicCompany company = action.getCompany();
+        Phase phase = root.getPhaseManager().getCurrentPhase();
+
+        int optimal = 0;
+        int optimalSpecial = 0;
+        boolean complete = true;
+        String status;
+        try {
+            RevenueAdapter ra = RevenueAdapter.createRevenueAdapter(root, company, phase);
+            if (!ra.getTrains().isEmpty()) {
+                ra.initRevenueCalculator(true);
+                RevenueResult result = ra.calculateRevenue(budget, null);
+                optimal = result.getValue();
+                optimalSpecial = result.getSpecialRevenue();
+                complete = result.isOptimal();
+            }
+            if (action.getActualRevenue() == optimal) {
+                status = "MATCH";
+            } else {
+                status = action.getActualRevenue() < optimal ? "BELOW" : "ABOVE";
+                nbMismatches.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Revenue calculation failed for {} at action {}", file, count, e);
+            status = "ERROR";
+        }
+
+        Object[] values = {file.getPath(), count, root.getGameManager().getCurrentRound().getId(),
+                company.getId(), phase.getId(), action.getActualRevenue(), action.getActualCompanyTreasuryRevenue(),
+                optimal, optimalSpecial, complete, status};
+        write(format == Format.CSV ? toCsv(values) : toJson(values));
+    }
+
+    private synchronized void write(String line) {
+        output.println(line);
+        output.flush();
+    }
+
+    private static String toCsv(Object[] values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) line.append(',');
+            String value = String.valueOf(values[i]);
+            if (value.contains(",") || value.contains("\"")) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        return line.toString();
+    }
+
+    private static String toJson(Object[] values) {
+        StringBuilder line = new StringBuilder("{");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) line.append(',');
+            line.append('"').append(COLUMNS[i]).append("\":");
+            if (values[i] instanceof String) {
+                line.append('"').append(((String) values[i]).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            } else {
+                line.append(values[i]);
+            }
+        }
+        return line.append('}').toString();
+    }
+
+}
@@ -238,6 +238,10 @@ public class GameUIManager implements DialogOwner {
         // TODO: save relocation and resizing information of the FKStockChartWindow
 
         if (orWindow != null) orWindow.saveLayout();
+        // statistics of the revenue calculations of the session
+        if (railsRoot != null && railsRoot.getRevenueStatisticsRegistry().getNbCalculations() > 0) {
+            log.info("{}", railsRoot.getRevenueStatisticsRegistry().dump());
+        }
         System.exit(0);
     }
 
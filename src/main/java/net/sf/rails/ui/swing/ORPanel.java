@@ -17,6 +17,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -38,6 +39,7 @@ implements ActionListener, KeyListener, RevenueListener {
     private static final String REDO_CMD = "Redo";
     public static final String REM_TILES_CMD = "RemainingTiles";
     private static final String NETWORK_INFO_CMD = "NetworkInfo";
+    private static final String REVENUE_STATISTICS = "Revenue statistics";
     public static final String TAKE_LOANS_CMD = "TakeLoans";
     public static final String REPAY_LOANS_CMD = "RepayLoans";
 
@@ -134,7 +136,7 @@ implements ActionListener, KeyListener, RevenueListener {
 
     private boolean isRevenueValueToBeSet = false;
     private RevenueAdapter revenueAdapter = null;
-    private Thread revenueThread = null;
+    private RevenueService.Calculation revenueCalculation = null;
 
     private List<JFrame> openWindows = new ArrayList<>();
 
@@ -816,6 +818,14 @@ implements ActionListener, KeyListener, RevenueListener {
             networkMenu.add(item);
         }
 
+        //statistics of the revenue calculations only for developers
+        if (revenue_suggest && Config.isDevelop()) {
+            JMenuItem item = new JMenuItem(REVENUE_STATISTICS);
+            item.addActionListener(this);
+            item.setActionCommand(NETWORK_INFO_CMD);
+            networkMenu.add(item);
+        }
+
         if (revenue_suggest) {
             CompanyManager cm = orUIManager.getGameUIManager().getGameManager().getRoot().getCompanyManager();
             for (PublicCompany comp : cm.getAllPublicCompanies()) {
@@ -841,6 +851,15 @@ implements ActionListener, KeyListener, RevenueListener {
             if ( mapWindow != null ) {
                 openWindows.add(mapWindow);
             }
+        } else if (companyName.equals(REVENUE_STATISTICS)) {
+            String statistics = root.getRevenueStatisticsRegistry().dump();
+            log.info("{}", statistics);
+            JTextArea statisticsText = new JTextArea(statistics);
+            statisticsText.setEditable(false);
+            JScrollPane statisticsPane = new JScrollPane(statisticsText);
+            statisticsPane.setPreferredSize(new Dimension(800, 400));
+            JOptionPane.showMessageDialog(orWindow, statisticsPane, REVENUE_STATISTICS,
+                    JOptionPane.INFORMATION_MESSAGE);
         } else {
             CompanyManager cm = root.getCompanyManager();
             PublicCompany company = cm.getPublicCompany(companyName);
@@ -857,16 +876,23 @@ implements ActionListener, KeyListener, RevenueListener {
             }
             List<String> addTrainList = new ArrayList<>();
             boolean anotherTrain = true;
-            RevenueAdapter ra;
+            RevenueService revenueService = root.getRevenueService();
+            revenueService.setParallelSearch(Config.getBoolean("map.route.parallel", true));
             while (anotherTrain) {
-                // multi
-                ra = RevenueAdapter.createRevenueAdapter(root, company, root.getPhaseManager().getCurrentPhase());
-                for (String addTrain:addTrainList) {
-                    ra.addTrainByString(addTrain);
+                // shares the calculation of the displayed routes, if the trains are not changed
+                RevenueResult result;
+                RevenueAdapter ra;
+                try {
+                    RevenueService.Calculation calculation = revenueService.calculate(company,
+                            root.getPhaseManager().getCurrentPhase(), addTrainList);
+                    result = calculation.get();
+                    ra = calculation.getRevenueAdapter();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
                 }
-                ra.initRevenueCalculator(true); // true => multigraph, false => simplegraph
                 log.debug("Revenue Adapter:{}", ra);
-                int revenueValue = ra.calculateRevenue();
+                int revenueValue = result.getValue();
                 log.debug("Revenue Value:{}", revenueValue);
                 log.debug("Revenue Run:{}", ra.getOptimalRunPrettyPrint(true));
                 //try-catch clause temporary workaround as revenue adapter's
@@ -881,7 +907,7 @@ implements ActionListener, KeyListener, RevenueListener {
                  * 1822CA: Mail Contract
                  * 1854 old/new : Mail Contract ?
                  */
-                int specialRevenue = ra.getSpecialRevenue();
+                int specialRevenue = result.getSpecialRevenue();
                 log.debug("Special revenue: {}", specialRevenue);
 
                 if (!Config.isDevelop()) {
@@ -1157,14 +1183,11 @@ implements ActionListener, KeyListener, RevenueListener {
     }
 
     private void clearRevenueAdapter() {
-        if (revenueThread != null) {
-            revenueThread.interrupt();
-            revenueThread = null;
-        }
-        if (revenueAdapter != null) {
-            revenueAdapter.removeRevenueListener();
-            revenueAdapter = null;
+        if (revenueCalculation != null) {
+            revenueCalculation.release(this);
+            revenueCalculation = null;
         }
+        revenueAdapter = null;
     }
 
     private void updateCurrentRoutes(boolean isSetRevenueStep) {
@@ -1178,11 +1201,14 @@ implements ActionListener, KeyListener, RevenueListener {
             isRevenueValueToBeSet = isSetRevenueStep && isSuggestRevenue();
 
             RailsRoot root = orUIManager.getGameUIManager().getRoot();
-            revenueAdapter = RevenueAdapter.createRevenueAdapter(root, orComp, root.getPhaseManager().getCurrentPhase());
-            revenueAdapter.initRevenueCalculator(true);
-            revenueAdapter.addRevenueListener(this);
-            revenueThread = new Thread(revenueAdapter);
-            revenueThread.start();
+            RevenueService revenueService = root.getRevenueService();
+            revenueService.setParallelSearch(Config.getBoolean("map.route.parallel", true));
+            // request before the release, thus an identical running calculation is kept
+            RevenueService.Calculation calculation = revenueService.request(orComp,
+                    root.getPhaseManager().getCurrentPhase(), Collections.<String>emptyList(), this);
+            clearRevenueAdapter();
+            revenueCalculation = calculation;
+            revenueAdapter = calculation.getRevenueAdapter();
         } else {
 
             //remove current routes also if display option is not active
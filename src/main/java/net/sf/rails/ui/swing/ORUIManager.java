@@ -12,9 +12,8 @@ import java.util.Set;
 import javax.swing.JDialog;
 import javax.swing.JOptionPane;
 
-import net.sf.rails.algorithms.NetworkAdapter;
-import net.sf.rails.algorithms.NetworkGraph;
 import net.sf.rails.algorithms.NetworkVertex;
+import net.sf.rails.algorithms.RouteGraphService;
 import net.sf.rails.common.Config;
 import net.sf.rails.common.GameOption;
 import net.sf.rails.common.GuiDef;
@@ -75,7 +74,6 @@ public class ORUIManager implements DialogOwner {
     private static final Logger log = LoggerFactory.getLogger(ORUIManager.class);
 
     protected GameUIManager gameUIManager;
-    protected NetworkAdapter networkAdapter;
 
     protected ORWindow orWindow;
     protected ORPanel orPanel;
@@ -114,7 +112,6 @@ public class ORUIManager implements DialogOwner {
 
     void setGameUIManager (GameUIManager gameUIManager) {
         this.gameUIManager = gameUIManager;
-        this.networkAdapter = NetworkAdapter.create(gameUIManager.getRoot());
     }
 
     void init(ORWindow orWindow) {
@@ -254,9 +251,10 @@ public class ORUIManager implements DialogOwner {
     }
 
     private void addConnectedTileLays(LayTile layTile) {
-        NetworkGraph graph = networkAdapter.getRouteGraph(layTile.getCompany(), true, false);
-        Map<MapHex, HexSidesSet> mapHexSides = graph.getReachableSides();
-        Multimap<MapHex, Station> mapHexStations = graph.getPassableStations();
+        RouteGraphService.Snapshot routes = gameUIManager.getRoot().getRouteGraphService()
+                .getSnapshot(layTile.getCompany());
+        Map<MapHex, HexSidesSet> mapHexSides = routes.getReachableSides();
+        Multimap<MapHex, Station> mapHexStations = routes.getPassableStations();
         Phase currentPhase = gameUIManager.getCurrentPhase();
 
         boolean allLocations = (layTile.getLocations() == null
@@ -282,7 +280,7 @@ public class ORUIManager implements DialogOwner {
             // do nothing
         } else {
             mapPanel.scrollPaneShowRectangle(
-                    NetworkVertex.getVertexMapCoverage(map, graph.getGraph().vertexSet()));
+                    NetworkVertex.getVertexMapCoverage(map, routes.getVertices()));
         }
     }
 
@@ -351,8 +349,8 @@ public class ORUIManager implements DialogOwner {
 
     private void addGenericTokenLays(LayToken action) {
         PublicCompany company = action.getCompany();
-        NetworkGraph graph = networkAdapter.getRouteGraph(company, true, false);
-        Multimap<MapHex, Stop> hexStops = graph.getTokenableStops(company);
+        Multimap<MapHex, Stop> hexStops = gameUIManager.getRoot().getRouteGraphService()
+                .getSnapshot(company).getTokenableStops();
         for (MapHex hex:hexStops.keySet()) {
             GUIHex guiHex = map.getHex(hex);
             TokenHexUpgrade upgrade = TokenHexUpgrade.create(guiHex, hexStops.get(hex), action);
@@ -1293,6 +1291,20 @@ public class ORUIManager implements DialogOwner {
         gameUIManager.processAction(action);
     }
 
+    /**
+     * Starts the evaluation of the route graph of the next operating company in the background
+     */
+    private void prepareNextRouteGraph() {
+        List<PublicCompany> operatingCompanies = oRound.getOperatingCompanies();
+        int nextIndex = oRound.getOperatingCompanyIndex() + 1;
+        if (nextIndex <= 0 || nextIndex >= operatingCompanies.size()) return;
+
+        PublicCompany nextCompany = operatingCompanies.get(nextIndex);
+        if (!nextCompany.isClosed()) {
+            gameUIManager.getRoot().getRouteGraphService().prepareSnapshot(nextCompany);
+        }
+    }
+
     public void updateStatus(boolean myTurn) {
         updateStatus(null, myTurn);
     }
@@ -1330,6 +1342,11 @@ public class ORUIManager implements DialogOwner {
 
         orPanel.initORCompanyTurn(orComp, orCompIndex);
 
+        // the map cannot be changed by the current company anymore
+        if (orStep.compareTo(GameDef.OrStep.CALC_REVENUE) >= 0) {
+            prepareNextRouteGraph();
+        }
+
         //orPanel.initPrivateBuying(false);
 
 
@@ -7,7 +7,7 @@ import com.google.common.collect.Multimap;
 import rails.game.action.LayBonusToken;
 import rails.game.action.LayToken;
 import rails.game.action.PossibleAction;
-import net.sf.rails.algorithms.NetworkGraph;
+import net.sf.rails.algorithms.RouteGraphService;
 import net.sf.rails.game.MapHex;
 import net.sf.rails.game.PublicCompany;
 import net.sf.rails.game.Stop;
@@ -51,10 +51,11 @@ public class ORUIManager_18AL extends ORUIManager {
         
         if (action instanceof LayBonusToken) { //Special Action from Private Company in 18AL
             PublicCompany company = action.getCompany();
-            NetworkGraph graph = networkAdapter.getRouteGraph(company, true, false);
+            RouteGraphService.Snapshot routes = gameUIManager.getRoot().getRouteGraphService()
+                    .getSnapshot(company);
             
             for (MapHex hex:action.getLocations()) {
-                if (graph.getPassableStations().containsKey(hex) )
+                if (routes.getPassableStations().containsKey(hex) )
                 {
                     GUIHex guiHex = orWindow.getMapPanel().getMap().getHex(hex);
                     TokenHexUpgrade upgrade = TokenHexUpgrade.create(
@@ -34,7 +34,8 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
     private LayTile action; // Not final, must be changeable for SOH
 
     // validation fields
-    private HexSidesSet rotations;
+    // mask of the valid rotations
+    private int rotations;
     private boolean permissiveRoutePossible;
     private final EnumSet<Invalids> invalids = EnumSet.noneOf(Invalids.class);
     private boolean relayBaseTokens;
@@ -53,6 +54,15 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
     public static Set<TileHexUpgrade> create(GUIHex hex, HexSidesSet connected, Collection<Station> stations,
                                              LayTile action, String routeAlgorithm) {
 
+        // encode connectivity as masks once for all upgrades
+        int connectedMask = (connected == null) ? TileUpgrade.NO_CONNECTION_REQUIRED : connected.toMask();
+        int stationsMask = 0;
+        if (stations != null) {
+            for (Station station : stations) {
+                stationsMask |= TileUpgrade.stationMask(station);
+            }
+        }
+
         // use that to define available upgrades
         ImmutableSet.Builder<TileHexUpgrade> upgrades = ImmutableSet.builder();
         for (TileUpgrade upgrade : hex.getHex().getCurrentTile().getTileUpgrades()) {
@@ -61,19 +71,17 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
             Tile targetTile = upgrade.getTargetTile();
             HexSide fixedRotation = targetTile.getFixedOrientation();
             if (fixedRotation != null) {
-                BitSet b = new BitSet();
-                b.set (fixedRotation.getTrackPointNumber());
-                hexUpgrade.rotations = HexSidesSet.create(b);
+                hexUpgrade.rotations = 1 << fixedRotation.getTrackPointNumber();
                 hexUpgrade.selectedRotation = fixedRotation;
             } else if (routeAlgorithm.equalsIgnoreCase("PERMISSIVE")) {
-                hexUpgrade.findValidRotations(connected, stations, false);
+                hexUpgrade.findValidRotations(connectedMask, stationsMask, false);
             } else if (routeAlgorithm.equalsIgnoreCase("RESTRICTIVE")) {
-                hexUpgrade.findValidRotations(connected, stations, true);
+                hexUpgrade.findValidRotations(connectedMask, stationsMask, true);
             } else if (routeAlgorithm.equalsIgnoreCase("SEMI-RESTRICTIVE")) {
                 if (upgrade.getTargetTile().hasStations()) {
-                    hexUpgrade.findValidRotations(connected, stations, false);
+                    hexUpgrade.findValidRotations(connectedMask, stationsMask, false);
                 } else {
-                    hexUpgrade.findValidRotations(connected, stations, true);
+                    hexUpgrade.findValidRotations(connectedMask, stationsMask, true);
                 }
             }
             upgrades.add(hexUpgrade);
@@ -87,14 +95,14 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
         if (action.getTiles() == null || action.getTiles().isEmpty()) {
             for (TileUpgrade upgrade : hex.getHex().getCurrentTile().getTileUpgrades()) {
                 TileHexUpgrade hexUpgrade = new TileHexUpgrade(hex, upgrade, action);
-                hexUpgrade.findValidRotations(null, null, true);
+                hexUpgrade.findValidRotations(TileUpgrade.NO_CONNECTION_REQUIRED, 0, true);
                 upgrades.add(hexUpgrade);
             }
         } else {
             for (Tile targetTile : action.getTiles()) {
                 TileUpgrade upgrade = hex.getHex().getCurrentTile().getSpecificUpgrade(targetTile);
                 TileHexUpgrade hexUpgrade = new TileHexUpgrade(hex, upgrade, action);
-                hexUpgrade.findValidRotations(null, null, true);
+                hexUpgrade.findValidRotations(TileUpgrade.NO_CONNECTION_REQUIRED, 0, true);
                 upgrades.add(hexUpgrade);
             }
         }
@@ -106,46 +114,51 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
 
         for (TileUpgrade upgrade : hex.getHex().getCurrentTile().getTileUpgrades()) {
             TileHexUpgrade hexUpgrade = new TileHexUpgrade(hex, upgrade, action);
-            hexUpgrade.findValidRotations(null, null, true);
+            hexUpgrade.findValidRotations(TileUpgrade.NO_CONNECTION_REQUIRED, 0, true);
             upgrades.add(hexUpgrade);
         }
         return upgrades.build();
     }
 
-    /* FIXME: this method fails to find a valid orientation
+    /**
+     * FIXME: this method fails to find a valid orientation
      * for the 1837 Vienna green upgrade tile #427, which
      * is a 6-fold symmetric tile where all orientations are OK!
      * (this has been circumvented by configuring a fixed orientation).
+     *
+     * @param connectedSides mask of the connected sides, or TileUpgrade.NO_CONNECTION_REQUIRED
+     * @param stations mask of the connected stations, see TileUpgrade.stationMask
      */
-    private void findValidRotations(HexSidesSet connectedSides, Collection<Station> stations, boolean restrictive) {
+    private void findValidRotations(int connectedSides, int stations, boolean restrictive) {
         MapHex modelHex = hex.getHex();
+        HexSide tileRotation = modelHex.getCurrentTileRotation();
 
         // encode HexSides according to the tile current orientation
-        if (connectedSides != null) {
-            connectedSides = HexSidesSet.rotated(connectedSides, modelHex.getCurrentTileRotation());
+        if (connectedSides != TileUpgrade.NO_CONNECTION_REQUIRED) {
+            connectedSides = HexSidesSet.rotatedMask(connectedSides, tileRotation);
         }
         // check invalid sides
-        HexSidesSet invalidSides = null;
+        int invalidSides = 0;
         if (modelHex.getInvalidSides() != null) {
-            invalidSides = HexSidesSet.rotated(modelHex.getInvalidSides(), modelHex.getCurrentTileRotation());
+            invalidSides = HexSidesSet.rotatedMask(modelHex.getInvalidSides().toMask(), tileRotation);
         }
 
         if (requiresConnection()) {
-            HexSidesSet permissive = upgrade.getAllowedRotations(connectedSides, invalidSides,
-                    modelHex.getCurrentTileRotation(), stations, false);
+            int permissive = upgrade.getAllowedRotations(connectedSides, invalidSides,
+                    tileRotation, stations, false);
             if (restrictive) {
                 rotations = upgrade.getAllowedRotations(connectedSides, invalidSides,
-                        modelHex.getCurrentTileRotation(), stations, true);
-                permissiveRoutePossible = !permissive.isEmpty();
+                        tileRotation, stations, true);
+                permissiveRoutePossible = permissive != 0;
             } else {
                 rotations = permissive;
             }
         } else {
-            rotations = upgrade.getAllowedRotations(null, invalidSides,
-                    modelHex.getCurrentTileRotation(), stations, restrictive);
+            rotations = upgrade.getAllowedRotations(TileUpgrade.NO_CONNECTION_REQUIRED, invalidSides,
+                    tileRotation, stations, restrictive);
         }
         // initialize selected Rotation
-        selectedRotation = rotations.getNext(HexSide.defaultRotation());
+        selectedRotation = HexSidesSet.getNext(rotations, HexSide.defaultRotation());
     }
 
     private boolean validate(Phase phase) {
@@ -214,7 +227,7 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
     }
 
     public boolean noValidRotation() {
-        return rotations.isEmpty();
+        return rotations == 0;
     }
 
     public boolean hexIsBlocked() {
@@ -313,7 +326,7 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
      * @return the rotations
      */
     public HexSidesSet getRotations() {
-        return rotations;
+        return HexSidesSet.fromMask(rotations);
     }
 
     public HexSide getCurrentRotation() {
@@ -325,24 +338,24 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
     }
 
     public Iterator<HexSide> iterator() {
-        return rotations.iterator();
+        return getRotations().iterator();
     }
 
     // HexUpgrade interface method
 
     @Override
     public boolean hasSingleSelection() {
-        return rotations.onlySingle();
+        return Integer.bitCount(rotations) == 1;
     }
 
     @Override
     public void firstSelection() {
-        selectedRotation = rotations.getNext(HexSide.defaultRotation());
+        selectedRotation = HexSidesSet.getNext(rotations, HexSide.defaultRotation());
     }
 
     @Override
     public void nextSelection() {
-        selectedRotation = rotations.getNext(selectedRotation.next());
+        selectedRotation = HexSidesSet.getNext(rotations, selectedRotation.next());
     }
 
     @Override
@@ -473,7 +486,7 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
         return MoreObjects.toStringHelper(this)
                 .add("Hex", hex.toString())
                 .add("Upgrade", upgrade)
-                .add("rotations", rotations)
+                .add("rotations", getRotations())
                 .toString();
     }
 
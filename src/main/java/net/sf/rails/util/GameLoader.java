@@ -7,6 +7,7 @@ import net.sf.rails.common.parser.GameOptionsParser;
 import net.sf.rails.game.GameManager;
 import net.sf.rails.game.RailsRoot;
 import net.sf.rails.game.TrainCard;
+import net.sf.rails.game.state.StateManager;
 import net.sf.rails.ui.swing.GameUIManager;
 import net.sf.rails.ui.swing.SplashWindow;
 
@@ -32,6 +33,17 @@ public class GameLoader {
 
     private static final Logger log = LoggerFactory.getLogger(GameLoader.class);
 
+    /**
+     * Allows to inspect the game state during the replay of the loaded actions
+     */
+    public interface ReplayListener {
+        /**
+         * Called before the action is processed
+         * @param count number of the action, starting with 1
+         */
+        void beforeAction(int count, PossibleAction action);
+    }
+
     // game data
     private final GameIOData gameIOData = new GameIOData();
 
@@ -39,11 +51,16 @@ public class GameLoader {
     private ObjectInputStream ois = null;
     private RailsRoot railsRoot = null;
     private Exception exception = null;
+    private ReplayListener replayListener = null;
 
     public GameLoader() {
         // do nothing
     }
 
+    public void setReplayListener(ReplayListener replayListener) {
+        this.replayListener = replayListener;
+    }
+
     public static void loadAndStartGame(File gameFile) {
         SplashWindow splashWindow = new SplashWindow(true, gameFile.getAbsolutePath());
         splashWindow.notifyOfStep(SplashWindow.STEP_LOAD_GAME);
@@ -283,14 +300,23 @@ public class GameLoader {
         if (gameIOData.getActions() != null) {
             // set possible actions for first action
             gameManager.getCurrentRound().setPossibleActions();
-            for (PossibleAction action : gameIOData.getActions()) {
-                count++;
-                if (!gameManager.processOnReload(action)) {
-                    log.warn("Replay of game interrupted at action "+count);
-                    String message = LocalText.getText("LoadInterrupted", count);
-                    exception = new RailsReplayException(message);
-                    break;
+            // observers are updated once after the replay
+            StateManager.NotificationScope scope = railsRoot.getStateManager().suspendNotifications();
+            try {
+                for (PossibleAction action : gameIOData.getActions()) {
+                    count++;
+                    if (replayListener != null) {
+                        replayListener.beforeAction(count, action);
+                    }
+                    if (!gameManager.processOnReload(action)) {
+                        log.warn("Replay of game interrupted at action "+count);
+                        String message = LocalText.getText("LoadInterrupted", count);
+                        exception = new RailsReplayException(message);
+                        break;
+                    }
                 }
+            } finally {
+                scope.close();
             }
         }
 
@@ -0,0 +1,107 @@
+package net.sf.rails.algorithms;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.GameDef;
+import net.sf.rails.game.OperatingRound;
+import net.sf.rails.game.Phase;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.game.round.RoundFacade;
+import net.sf.rails.game.state.ChangeStack;
+import net.sf.rails.util.GameLoader;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the retrieval of revenue results from the revenue cache
+ * at the last revenue step of a saved game
+ */
+public class RevenueCacheTest {
+
+    private static final String GAME_FILE = "real/1889_A.rails";
+
+    private RailsRoot root;
+    private PublicCompany company;
+    private Phase phase;
+    private RevenueCache revenueCache;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() {
+        GameLoader loader = new GameLoader();
+        assertTrue(loader.createFromFile(new File(Config.get("save.directory"), GAME_FILE)));
+        root = loader.getRoot();
+
+        ChangeStack changeStack = root.getStateManager().getChangeStack();
+        while (!isRevenueStep(root.getGameManager().getCurrentRound())) {
+            assertTrue(changeStack.isUndoPossible());
+            changeStack.undo();
+        }
+        company = ((OperatingRound) root.getGameManager().getCurrentRound()).getOperatingCompany();
+        phase = root.getPhaseManager().getCurrentPhase();
+        revenueCache = root.getRevenueCache();
+        revenueCache.clear();
+    }
+
+    private static boolean isRevenueStep(RoundFacade round) {
+        return round instanceof OperatingRound
+                && ((OperatingRound) round).getStep() == GameDef.OrStep.CALC_REVENUE;
+    }
+
+    private RevenueResult calculate() {
+        return RevenueAdapter.calculateAll(root, Collections.singletonList(company), phase).get(company);
+    }
+
+    @Test
+    public void testCacheKey() {
+        List<String> noTrains = Collections.emptyList();
+        assertEquals(RevenueAdapter.createCacheKey(root, company, phase, noTrains),
+                RevenueAdapter.createCacheKey(root, company, phase, noTrains));
+        assertNotEquals(RevenueAdapter.createCacheKey(root, company, phase, noTrains),
+                RevenueAdapter.createCacheKey(root, company, phase, Collections.singletonList("D")));
+    }
+
+    @Test
+    public void testRetrieval() throws InterruptedException {
+        RevenueResult calculated = calculate();
+        assertFalse(calculated.getStatistics().isCached());
+        assertEquals(1, revenueCache.size());
+
+        RevenueResult retrieved = calculate();
+        assertTrue(retrieved.getStatistics().isCached());
+        assertTrue(retrieved.isOptimal());
+        assertEquals(calculated.getValue(), retrieved.getValue());
+        assertSame(calculated.getRun(), retrieved.getRun());
+
+        // the revenue service shares the cache
+        RevenueService.Calculation calculation = root.getRevenueService().calculate(company, phase,
+                Collections.<String>emptyList());
+        assertTrue(calculation.get().getStatistics().isCached());
+        assertEquals(calculated.getValue(), calculation.get().getValue());
+        assertNotNull(calculation.getRevenueAdapter());
+    }
+
+    @Test
+    public void testOtherGameState() {
+        RevenueResult calculated = calculate();
+        assertFalse(calculated.getStatistics().isCached());
+
+        root.getStateManager().getChangeStack().undo();
+        assertFalse(calculate().getStatistics().isCached());
+        assertEquals(2, revenueCache.size());
+    }
+
+}
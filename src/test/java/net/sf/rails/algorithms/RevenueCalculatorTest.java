@@ -0,0 +1,60 @@
+package net.sf.rails.algorithms;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+import net.sf.rails.game.RailsRoot;
+
+import org.junit.Test;
+
+/**
+ * Searches a small graph with the multigraph calculator
+ * <p>
+ * The graph: D(10) - A(20, start) - C(30) - B(0), two trains with three majors each.
+ * The run A-C-B has the value of A-C, but uses an edge more, thus it is dominated.
+ */
+public class RevenueCalculatorTest {
+
+    private static final int A = 0, B = 1, C = 2, D = 3;
+    private static final int AC = 0, CB = 1, AD = 2;
+
+    private static RevenueCalculatorMulti createCalculator(boolean dominance) {
+        // the adapter is only required to notify the (missing) revenue listener
+        RevenueAdapter ra = new RevenueAdapter(mock(RailsRoot.class), null, null, null);
+        RevenueCalculatorMulti rc = new RevenueCalculatorMulti(ra, 4, 3, 2, 0, 0, 2, 0);
+        int[] values = {20, 0, 30, 10};
+        for (int v = A; v <= D; v++) {
+            rc.setVertex(v, true, false, false);
+            for (int t = 0; t < 2; t++) {
+                rc.setVertexValue(v, t, values[v]);
+            }
+        }
+        rc.setVertexNeighbors(A, new int[] {C, D}, new int[] {AC, AD});
+        rc.setVertexNeighbors(B, new int[] {C}, new int[] {CB});
+        rc.setVertexNeighbors(C, new int[] {A, B}, new int[] {AC, CB});
+        rc.setVertexNeighbors(D, new int[] {A}, new int[] {AD});
+        rc.setStartVertexes(new int[] {A});
+        for (int e = AC; e <= AD; e++) {
+            rc.setEdge(e, false, 1);
+        }
+        for (int t = 0; t < 2; t++) {
+            rc.setTrain(t, 3, 0, false, false, false);
+        }
+        rc.setDominancePruning(dominance);
+        rc.initRuns(0, 1);
+        return rc;
+    }
+
+    @Test
+    public void testDominancePruning() {
+        RevenueCalculatorMulti search = createCalculator(false);
+        assertEquals(80, search.calculateRevenue(0, 1));
+        assertEquals(0, search.nbDominated);
+
+        RevenueCalculatorMulti pruned = createCalculator(true);
+        assertEquals(80, pruned.calculateRevenue(0, 1));
+        assertTrue(pruned.nbDominated > 0);
+        assertTrue(pruned.getNumberOfEvaluations() < search.getNumberOfEvaluations());
+    }
+
+}
@@ -0,0 +1,127 @@
+package net.sf.rails.algorithms;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.Phase;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import rails.game.action.PossibleAction;
+import rails.game.action.SetDividend;
+
+/**
+ * Replays saved games and checks before each SetDividend that the search variants
+ * (sequential, parallel, without symmetry breaking) find identical optimal runs
+ * and that the dominance pruning finds the same revenue
+ */
+public class RevenueSearchTest {
+
+    private static final String GAMES_DIRECTORY = "real";
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    private static final class Result {
+        private final int value;
+        private final String run;
+
+        private Result(RevenueAdapter ra) {
+            RevenueResult result = ra.calculateRevenue(null, null);
+            assertTrue(result.isOptimal());
+            value = result.getValue();
+            // the direction of a run and the order of identical trains are not defined
+            List<String> trainRuns = new ArrayList<>();
+            for (RevenueTrainRun trainRun : result.getRun()) {
+                List<String> vertices = new ArrayList<>();
+                for (NetworkVertex vertex : trainRun.getUniqueVertices()) {
+                    vertices.add(vertex.getIdentifier());
+                }
+                Collections.sort(vertices);
+                trainRuns.add(trainRun.getTrain() + " = " + trainRun.getRunValue() + " " + vertices);
+            }
+            Collections.sort(trainRuns);
+            run = trainRuns.toString();
+        }
+    }
+
+    private static Result calculate(RailsRoot root, PublicCompany company, Phase phase,
+            boolean parallel, boolean symmetry, boolean dominance) {
+        RevenueAdapter ra = RevenueAdapter.createRevenueAdapter(root, company, phase);
+        ra.initRevenueCalculator(true);
+        ra.setParallelSearch(parallel);
+        ra.setSymmetryBreaking(symmetry);
+        ra.setDominancePruning(dominance);
+        return new Result(ra);
+    }
+
+    private static void checkGame(String gameName) {
+        File gameFile = new File(Config.get("save.directory") + File.separator + GAMES_DIRECTORY,
+                gameName + ".rails");
+        final GameLoader loader = new GameLoader();
+        final List<String> mismatches = new ArrayList<>();
+        final int[] nbDividends = new int[1];
+        loader.setReplayListener(new GameLoader.ReplayListener() {
+            @Override
+            public void beforeAction(int count, PossibleAction action) {
+                if (!(action instanceof SetDividend)) return;
+                RailsRoot root = loader.getRoot();
+                PublicCompany company = ((SetDividend) action).getCompany();
+                Phase phase = root.getPhaseManager().getCurrentPhase();
+                Result sequential = calculate(root, company, phase, false, true, false);
+                Result parallel = calculate(root, company, phase, true, true, false);
+                Result noSymmetry = calculate(root, company, phase, false, false, false);
+                for (Result result : new Result[] {parallel, noSymmetry}) {
+                    if (result.value != sequential.value || !result.run.equals(sequential.run)) {
+                        mismatches.add("action " + count + " " + company.getId() + ": "
+                                + sequential.value + " [" + sequential.run + "] <> "
+                                + result.value + " [" + result.run + "]");
+                    }
+                }
+                // a dominated run can be replaced by a different run of the same value
+                Result dominance = calculate(root, company, phase, false, true, true);
+                if (dominance.value != sequential.value) {
+                    mismatches.add("action " + count + " " + company.getId() + " with dominance pruning: "
+                            + sequential.value + " <> " + dominance.value);
+                }
+                nbDividends[0]++;
+            }
+        });
+        assertTrue("Replay of " + gameFile + " failed", loader.createFromFile(gameFile));
+        assertTrue(nbDividends[0] > 0);
+        assertEquals(gameName + ": " + mismatches, 0, mismatches.size());
+    }
+
+    @Test
+    public void test1830() {
+        checkGame("1830_B");
+    }
+
+    @Test
+    public void test1856() {
+        checkGame("1856_A");
+    }
+
+    @Test
+    public void test1889() {
+        checkGame("1889_A");
+    }
+
+    @Test
+    public void test18EU() {
+        checkGame("18EU_A");
+    }
+
+}
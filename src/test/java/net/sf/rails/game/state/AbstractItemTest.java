@@ -64,4 +64,12 @@ public class AbstractItemTest {
         assertEquals(Item.SEP + MANAGER_ID+ Item.SEP + ITEM_ID + Item.SEP + ANOTHER_ID, anotherItem.getFullURI());
     }
 
+    @Test
+    public void testURIsAreCached() {
+        assertSame(anotherItem.getURI(), anotherItem.getURI());
+        assertSame(anotherItem.getFullURI(), anotherItem.getFullURI());
+        // interned
+        assertSame(Item.SEP + MANAGER_ID + Item.SEP + ITEM_ID, item.getFullURI());
+    }
+
 }
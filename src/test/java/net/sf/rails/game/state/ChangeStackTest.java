@@ -131,4 +131,157 @@ public class ChangeStackTest {
         testUndoAfterClose();
     }
 
+    @Test
+    public void testLargeChangeSet() {
+        IntegerState counter = IntegerState.create(root, "Counter");
+        StateTestUtils.close(root);
+        // more changes than the initial capacity of the pending changes
+        for (int i = 1; i <= 100; i++) {
+            counter.set(i);
+        }
+        StateTestUtils.close(root);
+        assertEquals(100, counter.value());
+        assertEquals(5, changeStack.getCurrentIndex());
+
+        changeStack.undo();
+        assertEquals(0, counter.value());
+        changeStack.redo();
+        assertEquals(100, counter.value());
+
+        // the pending changes are reused for the next ChangeSet
+        counter.set(101);
+        StateTestUtils.close(root);
+        changeStack.undo();
+        assertEquals(100, counter.value());
+    }
+
+    @Test
+    public void testSnapshot() {
+        IntegerState counter = IntegerState.create(root, "Counter");
+        StateTestUtils.close(root);
+        StateSnapshot snapshot = changeStack.createSnapshot();
+        assertEquals(4, snapshot.getIndex());
+
+        for (int i = 1; i <= 3; i++) {
+            counter.set(i);
+            state.set(!state.value());
+            StateTestUtils.close(root);
+        }
+        assertEquals(3, counter.value());
+        assertFalse(state.value());
+
+        // restore moves the ChangeSets to the redo stack
+        changeStack.restore(snapshot);
+        assertEquals(4, changeStack.getCurrentIndex());
+        assertEquals(0, counter.value());
+        assertTrue(state.value());
+        changeStack.redo(7);
+        assertEquals(3, counter.value());
+        assertFalse(state.value());
+
+        // a snapshot after the current index is restored by redo
+        StateSnapshot later = changeStack.createSnapshot();
+        changeStack.undo(5);
+        assertEquals(1, counter.value());
+        changeStack.restore(later);
+        assertEquals(7, changeStack.getCurrentIndex());
+        assertEquals(3, counter.value());
+
+        // the ChangeSets after the snapshot are replaced
+        changeStack.undo(5);
+        counter.set(10);
+        StateTestUtils.close(root);
+        assertTrue(changeStack.isRestorable(snapshot));
+        assertFalse(changeStack.isRestorable(later));
+        try {
+            changeStack.restore(later);
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (Exception e) {
+            assertThat(e).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void testUndoRedoWithSnapshots() {
+        changeStack.setSnapshotInterval(2);
+        IntegerState counter = IntegerState.create(root, "Counter");
+        StateTestUtils.close(root);
+        for (int i = 1; i <= 10; i++) {
+            counter.set(i);
+            StateTestUtils.close(root);
+        }
+        assertEquals(14, changeStack.getCurrentIndex());
+
+        for (int index = 4; index < 14; index++) {
+            changeStack.undo(index);
+            assertEquals(index, changeStack.getCurrentIndex());
+            assertEquals(index - 4, counter.value());
+            changeStack.redo(14);
+            assertEquals(10, counter.value());
+        }
+
+        // snapshots of replaced ChangeSets are not used
+        changeStack.undo(6);
+        counter.set(20);
+        StateTestUtils.close(root);
+        counter.set(21);
+        StateTestUtils.close(root);
+        changeStack.undo(5);
+        assertEquals(1, counter.value());
+        changeStack.redo(8);
+        assertEquals(21, counter.value());
+    }
+
+    @Test
+    public void testSnapshotWithStateCreatedLater() {
+        StateSnapshot snapshot = changeStack.createSnapshot();
+        IntegerState counter = IntegerState.create(root, "Counter");
+        for (int i = 1; i <= 3; i++) {
+            counter.set(i);
+            StateTestUtils.close(root);
+        }
+        StateSnapshot later = changeStack.createSnapshot();
+
+        // the changes of the state created after the snapshot are undone
+        changeStack.restore(snapshot);
+        assertEquals(3, changeStack.getCurrentIndex());
+        assertEquals(0, counter.value());
+        changeStack.redo(5);
+        assertEquals(2, counter.value());
+
+        // and redone
+        changeStack.undo(4);
+        changeStack.restore(snapshot);
+        changeStack.restore(later);
+        assertEquals(3, counter.value());
+
+        // the snapshots taken before the state was created are used by undo and redo
+        changeStack.setSnapshotInterval(2);
+        IntegerState other = IntegerState.create(root, "Other");
+        for (int i = 1; i <= 10; i++) {
+            other.set(i);
+            StateTestUtils.close(root);
+        }
+        for (int index = 7; index < 16; index++) {
+            changeStack.undo(index);
+            assertEquals(index - 6, other.value());
+            assertEquals(3, counter.value());
+            changeStack.redo(16);
+            assertEquals(10, other.value());
+        }
+        changeStack.undo(4);
+        assertEquals(1, counter.value());
+        assertEquals(0, other.value());
+    }
+
+    @Test
+    public void testStatesOfChangeSet() {
+        assertThat(set_3.getStates()).containsOnly(state);
+        // the states are evaluated once
+        assertSame(set_3.getStates(), set_3.getStates());
+        changeStack.close(changeAction);
+        changeStack.undo();
+        assertThat(set_3.getStates()).containsOnly(state);
+    }
+
 }
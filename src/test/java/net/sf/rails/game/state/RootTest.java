@@ -85,6 +85,28 @@ public class RootTest {
         assertNull(root.locate(item.getFullURI()));
     }
     
+    @Test
+    public void testHandles() {
+        // root, state manager and its states are added first
+        assertSame(root, root.getItem(root.getHandle(root)));
+        int itemHandle = root.getHandle(item);
+        int anotherHandle = root.getHandle(anotherItem);
+        assertSame(item, root.getItem(itemHandle));
+        assertSame(anotherItem, root.getItem(anotherHandle));
+        assertEquals(itemHandle + 1, anotherHandle);
+        // handles are kept if the item is removed and added again
+        root.removeItem(item);
+        assertEquals(itemHandle, root.getHandle(item));
+        root.addItem(item);
+        assertEquals(itemHandle, root.getHandle(item));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testHandleFail() {
+        Root otherRoot = Root.create();
+        root.getHandle(otherRoot);
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void testAddItemFail() {
         root.addItem(item);
@@ -17,6 +17,17 @@ class StateImpl extends State {
         return new StateImpl(parent, id, text);
     }
     
+    // the text is the (constant) value
+    @Override
+    Object snapshotValue() {
+        return text;
+    }
+
+    @Override
+    boolean restoreValue(Object value) {
+        return false;
+    }
+
     @Override
     public String toText() {
         return text;
@@ -38,6 +38,7 @@ public class StateManagerTest {
     @Mock private Model model; 
     private ModelImpl m_A1, m_A2, m_A3, m_B1, m_B2, m_C1, m_C2, m_C3, m_D, m_E, m_F;
     @Mock private Observer o_A1, o_A2, o_A3, o_B1, o_B2, o_C1, o_C2, o_C3;
+    @Mock private ImmediateObserver o_immediate;
     
     @Before
     public void setUp() {
@@ -168,6 +169,31 @@ public class StateManagerTest {
           }
     }
 
+    @Test
+    public void testObservablesAfterModelChanges() {
+        // remove the cycle to allow the update of observers
+        m_E.removeModel(m_F);
+        StateTestUtils.close(root);
+        // B1, C1 <= B1 (cached)
+        assertObservables(ImmutableList.of(m_B1, m_C1), ImmutableSet.of(m_B1));
+        assertSame(sm.getModelsToUpdate(ImmutableSet.of(m_B1.getState())),
+                sm.getModelsToUpdate(ImmutableSet.of(m_B1.getState())));
+
+        // B1, C1, G <= B1 after adding G
+        ModelImpl m_G = ModelImpl.create(root, "G", "G");
+        m_C1.addModel(m_G);
+        assertObservables(ImmutableList.of(m_B1, m_C1, m_G), ImmutableSet.of(m_B1));
+        assertObservables(ImmutableList.of(m_A2, m_B1, m_B2, m_C1, m_C2, m_G), ImmutableSet.of(m_A2, m_B1));
+
+        // B1, C1 <= B1 after undo
+        StateTestUtils.closeAndUndo(root);
+        assertObservables(ImmutableList.of(m_B1, m_C1), ImmutableSet.of(m_B1));
+
+        // B1 <= B1 after removing C1
+        m_B1.removeModel(m_C1);
+        assertObservables(ImmutableList.of(m_B1), ImmutableSet.of(m_B1));
+    }
+
     @Test
     public void testUpdateObservers() {
         sm.updateObservers(ImmutableSet.of(m_A1.getState()));
@@ -179,6 +205,47 @@ public class StateManagerTest {
         verifyZeroInteractions(o_A2, o_A3, o_C3);
     }
 
+    @Test
+    public void testSuspendNotifications() {
+        StateManager.NotificationScope scope = sm.suspendNotifications();
+        sm.updateObservers(ImmutableSet.of(m_A1.getState()));
+        sm.updateObservers(ImmutableSet.of(m_A2.getState()));
+        verifyZeroInteractions(o_A1, o_A2, o_B1, o_B2, o_C1, o_C2);
+
+        // nested scope does not resume the notifications
+        StateManager.NotificationScope nested = sm.suspendNotifications();
+        nested.close();
+        verifyZeroInteractions(o_A1, o_A2, o_B1, o_B2, o_C1, o_C2);
+
+        // each observer is updated once
+        scope.close();
+        verify(o_A1).update(ID.get(0));
+        verify(o_A2).update(ID.get(1));
+        verify(o_B1).update(ID.get(3));
+        verify(o_B2).update(ID.get(4));
+        verify(o_C1).update(ID.get(5));
+        verify(o_C2).update(ID.get(6));
+        verifyZeroInteractions(o_A3, o_C3);
+
+        // closed scopes have no effect
+        scope.close();
+        sm.updateObservers(ImmutableSet.of(m_B1.getState()));
+        verify(o_B1, times(2)).update(ID.get(3));
+    }
+
+    @Test
+    public void testImmediateObserver() {
+        m_C3.addObserver(o_immediate);
+        StateManager.NotificationScope scope = sm.suspendNotifications();
+        sm.updateObservers(ImmutableSet.of(m_A3.getState()));
+        verify(o_immediate).update(ID.get(7));
+        verifyZeroInteractions(o_A3, o_C3);
+
+        scope.close();
+        verify(o_C3).update(ID.get(7));
+        verify(o_immediate).update(ID.get(7));
+    }
+
     @Test
     public void testGetChangeStack() {
         assertNotNull(sm.getChangeStack());